@@ -0,0 +1,68 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of the stimulus generation and export paths with the
+ * GC profiler, so every result has its time per operation next to the bytes
+ * allocated per operation (gc.alloc.rate.norm).
+ *
+ * Takes the usual JMH command line options, e.g. a regular expression to
+ * run only some benchmarks, or -f/-wi/-i for a quicker run:
+ *
+ *      java -cp ... benchmark.BenchmarkMain DotSetBenchmark -f 1 -wi 3 -i 5
+ *
+ * The benchmarks are in their own source folder, benchmarks, which the
+ * game's build (.classpath) does not include, so the game builds without
+ * JMH. To run them, compile benchmarks together with src against the game's
+ * libraries and jmh-core, with jmh-generator-annprocess on the annotation
+ * processor path so JMH finds the benchmarks.
+ *
+ * Classes Related To:
+ *  -DotsPairBenchmark.java
+ *  -DotSetBenchmark.java
+ *  -DotGridBenchmark.java
+ *  -DotsPairGeneratorBenchmark.java
+ *  -GameLogicBenchmark.java
+ *  -DataWriterBenchmark.java
+ *      -The benchmarks run.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class BenchmarkMain {
+
+    /** Warmup and measurement iterations, one second each, unless given on the command line. */
+    static final int WARMUP_ITERATIONS = 5;
+    static final int ITERATIONS = 5;
+    static final int FORKS = 2;
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        /* Options set on the builder override the command line, so only fill in what was not given. */
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(BenchmarkMain.class.getPackage().getName() + "\\.");
+        }
+        if (!commandLine.getWarmupIterations().hasValue()) {
+            builder.warmupIterations(WARMUP_ITERATIONS);
+        }
+        if (!commandLine.getMeasurementIterations().hasValue()) {
+            builder.measurementIterations(ITERATIONS);
+        }
+        if (!commandLine.getForkCount().hasValue()) {
+            builder.forks(FORKS);
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import config.GameConfig;
+import controller.DataWriter;
+import controller.TrialEncoder;
+import controller.TrialRecord;
+import model.ControlType;
+import model.DotsPair;
+import model.Player;
+
+/**
+ * Time and allocation of formatting the CSV line of a trial: as a String,
+ * and with the reused TrialEncoder the results file is written with. Run with
+ * the allocation profiler, encodeTrial should show no allocation per trial
+ * (gc.alloc.rate.norm of 0 B/op) once the encoder's buffer has grown.
+ *
+ * The record is built from a subject and a pair without a controller, which
+ * needs the JavaFX toolkit, so the flash and mask columns are written as not
+ * shown.
+ *
+ * Classes Related To:
+ *  -DataWriter.java (controller)
+ *      -Builds the record of the trial and formats the line.
+ *  -TrialEncoder.java (controller)
+ *      -Encodes the line without allocating.
+ *  -BenchmarkMain.java
+ *      -Runs this benchmark with the allocation profiler.
+ *
+ * @author Tony Jiang
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DataWriterBenchmark {
+
+    private TrialRecord trial;
+
+    private TrialEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        Player player = new Player("1001", Player.Gender.FEMALE, 24);
+        player.setResponseTime(612345678);
+        player.setCorrectedResponseTime(598765432);
+        player.setNumRounds(17);
+        player.setRight(true);
+        DotsPair dotsPair = new DotsPair(15, 20, ControlType.EQUAL_AREAS, null, 42, GameConfig.getDefault());
+        this.trial = new DataWriter(player, dotsPair).snapshot(false);
+        this.encoder = new TrialEncoder();
+    }
+
+    @Benchmark
+    public String generateTrialText() {
+        return DataWriter.generateTrialText(this.trial);
+    }
+
+    @Benchmark
+    public int encodeTrial() {
+        return this.encoder.encode(this.trial);
+    }
+}
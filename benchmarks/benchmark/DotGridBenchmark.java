@@ -0,0 +1,102 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import model.DotGrid;
+
+/**
+ * Time of placing dots by rejection sampling with a linear scan over every
+ * placed dot (how DotSet used to check overlap) against placing them with a
+ * DotGrid.
+ *
+ * The canvas is grown with the number of dots so that the density stays the
+ * same, so the time per dot should stay flat with the grid and grow linearly
+ * with the scan. Each operation places every dot from a new seed.
+ *
+ * Classes Related To:
+ *  -DotGrid.java (model)
+ *      -The grid checked against.
+ *  -BenchmarkMain.java
+ *      -Runs this benchmark with the allocation profiler.
+ *
+ * @author Tony Jiang
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DotGridBenchmark {
+
+    static final int MIN_DIAMETER = 20;
+    static final int MAX_DIAMETER = 30;
+    static final int MIN_DISTANCE_BETWEEN_DOTS = 3;
+
+    /** Canvas area in pixels given to each dot. */
+    static final int AREA_PER_DOT = 4000;
+
+    @Param({"60", "500", "5000"})
+    public int numDots;
+
+    /** Side of the square canvas. */
+    private int side;
+
+    /** Seed of the next operation. */
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        this.side = (int) Math.sqrt((double) this.numDots * AREA_PER_DOT);
+    }
+
+    @Benchmark
+    public double[] placeWithScan() {
+        Random randomGenerator = new Random(this.seed++);
+        double[] centerXs = new double[this.numDots];
+        double[] centerYs = new double[this.numDots];
+        double[] radii = new double[this.numDots];
+        int placed = 0;
+        while (placed < this.numDots) {
+            int x = randomGenerator.nextInt(this.side - MAX_DIAMETER);
+            int y = randomGenerator.nextInt(this.side - MAX_DIAMETER);
+            double radius = (randomGenerator.nextInt(MAX_DIAMETER - MIN_DIAMETER) + MIN_DIAMETER) / 2.0;
+            boolean overlaps = false;
+            for (int i = 0; i < placed && !overlaps; i++) {
+                double distance = Math.hypot(x + radius - centerXs[i], y + radius - centerYs[i]);
+                overlaps = distance < radius + radii[i] + MIN_DISTANCE_BETWEEN_DOTS;
+            }
+            if (!overlaps) {
+                centerXs[placed] = x + radius;
+                centerYs[placed] = y + radius;
+                radii[placed] = radius;
+                placed++;
+            }
+        }
+        return radii;
+    }
+
+    @Benchmark
+    public DotGrid placeWithGrid() {
+        Random randomGenerator = new Random(this.seed++);
+        DotGrid grid = new DotGrid(this.side, this.side, MAX_DIAMETER + MIN_DISTANCE_BETWEEN_DOTS,
+                MIN_DISTANCE_BETWEEN_DOTS);
+        while (grid.size() < this.numDots) {
+            int x = randomGenerator.nextInt(this.side - MAX_DIAMETER);
+            int y = randomGenerator.nextInt(this.side - MAX_DIAMETER);
+            double radius = (randomGenerator.nextInt(MAX_DIAMETER - MIN_DIAMETER) + MIN_DIAMETER) / 2.0;
+            if (!grid.overlaps(x + radius, y + radius, radius)) {
+                grid.add(x + radius, y + radius, radius);
+            }
+        }
+        return grid;
+    }
+}
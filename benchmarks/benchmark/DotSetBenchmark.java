@@ -0,0 +1,83 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import config.GameConfig;
+import model.DotSet;
+import model.RenderedAreaTable;
+
+/**
+ * Time and allocation of matching the area of a DotSet, as pi * r^2 and as
+ * rendered on screen.
+ *
+ * The same dot set is matched to two areas in turn, so every operation
+ * scales every dot without the dots shrinking away over the run.
+ *
+ * Classes Related To:
+ *  -DotSet.java (model)
+ *      -The dot set matched.
+ *  -BenchmarkMain.java
+ *      -Runs this benchmark with the allocation profiler.
+ *
+ * @author Tony Jiang
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DotSetBenchmark {
+
+    @Param({"10", "30", "60"})
+    public int numDots;
+
+    private DotSet dotSet;
+    private RenderedAreaTable renderedAreas;
+    private double smallerArea;
+    private double largerArea;
+    private boolean toSmaller;
+
+    @Setup
+    public void setUp() {
+        GameConfig config = GameConfig.getDefault();
+        this.dotSet = new DotSet(this.numDots, 1.0, null, 42, config);
+        this.smallerArea = this.dotSet.getTotalArea() * 0.8;
+        this.largerArea = this.dotSet.getTotalArea() * 0.9;
+        this.renderedAreas = syntheticTable(config.getMaxDiameter());
+    }
+
+    @Benchmark
+    public DotSet matchArea() {
+        this.toSmaller = !this.toSmaller;
+        this.dotSet.matchArea(this.toSmaller ? this.smallerArea : this.largerArea);
+        return this.dotSet;
+    }
+
+    @Benchmark
+    public DotSet matchRenderedArea() {
+        this.toSmaller = !this.toSmaller;
+        this.dotSet.matchRenderedArea(this.toSmaller ? this.smallerArea : this.largerArea, this.renderedAreas);
+        return this.dotSet;
+    }
+
+    /**
+     * A table shaped like a measured one, pi * r^2 with a thin antialiased edge,
+     * so the benchmark does not depend on the display.
+     */
+    private static RenderedAreaTable syntheticTable(double maxDiameter) {
+        double[] areas = new double[(int) Math.ceil(maxDiameter / RenderedAreaTable.STEP) + 1];
+        for (int i = 0; i < areas.length; i++) {
+            double radius = i * RenderedAreaTable.STEP / 2;
+            areas[i] = Math.PI * radius * radius + 0.1 * radius;
+        }
+        return new RenderedAreaTable(areas);
+    }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import config.GameConfig;
+import model.ControlType;
+import model.DotsPair;
+
+/**
+ * Time and allocation of generating a DotsPair: placing both dot sets and
+ * controlling their areas, for each control type and a range of dot counts
+ * (DotsPairGenerator keeps the total between MIN_DOTS and MAX_DOTS).
+ *
+ * Every operation uses a new seed, so the placement differs from one
+ * operation to the next the way it does between trials.
+ *
+ * Classes Related To:
+ *  -DotsPair.java (model)
+ *      -The pair generated.
+ *  -BenchmarkMain.java
+ *      -Runs this benchmark with the allocation profiler.
+ *
+ * @author Tony Jiang
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DotsPairBenchmark {
+
+    /** Number of dots in the first and second set, as "one:two". */
+    @Param({"9:12", "15:20", "24:36"})
+    public String dotCounts;
+
+    @Param({"EQUAL_AREAS", "INVERSE_AREAS", "RADIUS_AVERAGE_EQUAL", "NONE"})
+    public ControlType controlType;
+
+    private int numDotsOne;
+    private int numDotsTwo;
+    private GameConfig config;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        String[] counts = this.dotCounts.split(":");
+        this.numDotsOne = Integer.parseInt(counts[0]);
+        this.numDotsTwo = Integer.parseInt(counts[1]);
+        this.config = GameConfig.getDefault();
+    }
+
+    @Benchmark
+    public DotsPair newDotsPair() {
+        return new DotsPair(this.numDotsOne, this.numDotsTwo, this.controlType, null, 
+                this.seed++, this.config);
+    }
+}
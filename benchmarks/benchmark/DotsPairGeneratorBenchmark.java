@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import config.GameConfig;
+import model.DotsPair;
+import model.DotsPairGenerator;
+
+/**
+ * Time and allocation of getting the next pair of a block from the
+ * DotsPairGenerator, as the controller does every trial.
+ *
+ * The generator builds upcoming pairs on its worker thread, so back to back
+ * calls measure how fast pairs can be supplied: the wait for the worker plus
+ * deciding the ratio and queueing the next pair. The log is raised to WARNING
+ * while measuring so the per pair INFO lines are not timed with it.
+ *
+ * Classes Related To:
+ *  -DotsPairGenerator.java (model)
+ *      -The generator.
+ *  -BenchmarkMain.java
+ *      -Runs this benchmark with the allocation profiler.
+ *
+ * @author Tony Jiang
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DotsPairGeneratorBenchmark {
+
+    @Param({"0", "1", "2", "3"})
+    public int blockMode;
+
+    private DotsPairGenerator dpg;
+    private Level logLevel;
+
+    @Setup
+    public void setUp() {
+        Logger logger = Logger.getLogger("mylog");
+        this.logLevel = logger.getLevel();
+        logger.setLevel(Level.WARNING);
+        this.dpg = new DotsPairGenerator(GameConfig.getDefault());
+        this.dpg.setBlockMode(this.blockMode);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Logger.getLogger("mylog").setLevel(this.logLevel);
+    }
+
+    @Benchmark
+    public DotsPair getNewModePair() {
+        this.dpg.getNewModePair();
+        return this.dpg.getDotsPair();
+    }
+}
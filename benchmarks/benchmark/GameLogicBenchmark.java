@@ -0,0 +1,64 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import config.GameConfig;
+import model.ControlType;
+import model.DotsPair;
+import model.GameLogic;
+
+/**
+ * Time and allocation of deciding which answer is correct for a pair.
+ *
+ * Cycles through PAIRS pairs of different ratios generated beforehand, so
+ * the answer cannot be predicted or folded into a constant.
+ *
+ * Classes Related To:
+ *  -GameLogic.java (model)
+ *      -Decides the answer.
+ *  -BenchmarkMain.java
+ *      -Runs this benchmark with the allocation profiler.
+ *
+ * @author Tony Jiang
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameLogicBenchmark {
+
+    /** Number of pairs cycled through. A power of two. */
+    static final int PAIRS = 16;
+
+    @Param({"0", "1", "2", "3"})
+    public int blockMode;
+
+    private DotsPair[] dotsPairs;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        GameConfig config = GameConfig.getDefault();
+        this.dotsPairs = new DotsPair[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            int numDotsOne = 8 + i;
+            int numDotsTwo = 23 - i;
+            this.dotsPairs[i] = new DotsPair(numDotsOne, numDotsTwo, ControlType.NONE, null, i, config);
+        }
+    }
+
+    @Benchmark
+    public boolean checkWhichSideCorrect() {
+        DotsPair dotsPair = this.dotsPairs[this.next++ & (PAIRS - 1)];
+        return GameLogic.checkWhichSideCorrect(dotsPair, this.blockMode);
+    }
+}
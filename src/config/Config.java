@@ -3,43 +3,185 @@ package config;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Properties;
  
 /**
  * Class to interact with configuration properties file.
+ *
+ * Properties are looked up in four layers, each overriding the one before:
+ *  -defaultconfig.properties, bundled with the program.
+ *  -The local config file, localconfig.properties in the working directory
+ *   (or the file named by the config.file system property), if it exists.
+ *  -The size of the dots canvas, when the game sets it from the screen.
+ *  -Command line arguments of the form --key=value.
+ * The layers are merged once and the result is cached until reload() is called.
+ *
  * @author Tony Jiang (
  * 7-7-2015
  *
  */
 
 public class Config {
- 
+    
     /** Default properties to be loaded from defaultconfig.properties */
     private static Properties defaultProperties;
     private final static String DEFAULT_CONFIG_FILE_NAME = "defaultconfig.properties";
     
+    /** Name of the local config file, looked for in the working directory. */
+    private final static String LOCAL_CONFIG_FILE_NAME = "localconfig.properties";
+    
+    /** System property naming a local config file to use instead. */
+    private final static String LOCAL_CONFIG_FILE_PROPERTY = "config.file";
+    
+    /** Size of the canvas set from the screen. */
+    private static Properties canvasProperties = new Properties();
+    
+    /** Properties given on the command line. */
+    private static Properties commandLineProperties = new Properties();
+    
+    /** Every layer merged. null until first loaded. */
+    private static Properties properties;
+    
     public Config() {
         defaultLoad();
     }
     
     /**
-     * Creates and loads the default properties
+     * Creates and loads the default properties, then merges the other layers over them.
      */
     private void defaultLoad()
     {
-        // load the properties from the default config file
-        defaultProperties = new Properties();
-        InputStream in;
-        try {
-            in = getClass().getResourceAsStream(DEFAULT_CONFIG_FILE_NAME);
-            defaultProperties.load(in);
-        } catch (FileNotFoundException e) {
-            System.err.println("Default config file "
-                    + DEFAULT_CONFIG_FILE_NAME + " not found!!!");
-        } catch (IOException e)
-        {
-            System.err
-                    .println("IOException reading properties from default config file...");
+        synchronized (Config.class) {
+            // load the properties from the default config file
+            defaultProperties = new Properties();
+            InputStream in;
+            try {
+                in = getClass().getResourceAsStream(DEFAULT_CONFIG_FILE_NAME);
+                defaultProperties.load(in);
+            } catch (FileNotFoundException e) {
+                System.err.println("Default config file "
+                        + DEFAULT_CONFIG_FILE_NAME + " not found!!!");
+            } catch (IOException e)
+            {
+                System.err
+                        .println("IOException reading properties from default config file...");
+            }
+            merge();
+        }
+    }
+    
+    /**
+     * Merge the local config file and the command line over the default properties.
+     */
+    private static void merge() {
+        Properties merged = new Properties();
+        merged.putAll(defaultProperties);
+        Path localConfigFile = getLocalConfigPath();
+        if (Files.isRegularFile(localConfigFile)) {
+            try (InputStream in = Files.newInputStream(localConfigFile)) {
+                Properties localProperties = new Properties();
+                localProperties.load(in);
+                merged.putAll(localProperties);
+            } catch (IOException e) {
+                System.err.println("IOException reading properties from local config file "
+                        + localConfigFile + "...");
+            }
+        }
+        merged.putAll(canvasProperties);
+        merged.putAll(commandLineProperties);
+        properties = merged;
+    }
+    
+    /**
+     * Load the default properties if they have not been loaded yet.
+     */
+    private static synchronized Properties loaded() {
+        if (properties == null) {
+            new Config();
+        }
+        return properties;
+    }
+    
+    /**
+     * Re-read the local config file and merge the layers again.
+     * The default properties and command line are not read again.
+     */
+    public static synchronized void reload() {
+        if (defaultProperties == null) {
+            new Config();
+        } else {
+            merge();
+        }
+    }
+    
+    /**
+     * Set the command line layer from arguments of the form --key=value.
+     * Other arguments are ignored.
+     * @param args command line arguments.
+     */
+    public static synchronized void setCommandLineArguments(String[] args) {
+        commandLineProperties = new Properties();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--") && equals > 2) {
+                commandLineProperties.setProperty(arg.substring(2, equals).trim(),
+                        arg.substring(equals + 1).trim());
+            }
+        }
+        if (defaultProperties != null) {
+            merge();
+        }
+    }
+    
+    /**
+     * Set the size of the dots canvas, overriding canvas.width and canvas.height
+     * from the config files. Call before the configuration is first used.
+     * @param width width of the canvas in pixels.
+     * @param height height of the canvas in pixels.
+     */
+    public static synchronized void setCanvasSize(int width, int height) {
+        canvasProperties = new Properties();
+        canvasProperties.setProperty("canvas.width", Integer.toString(width));
+        canvasProperties.setProperty("canvas.height", Integer.toString(height));
+        if (defaultProperties != null) {
+            merge();
+        }
+        GameConfig.clearDefault();
+    }
+    
+    /**
+     * @return path of the local config file, which may not exist.
+     */
+    public static Path getLocalConfigPath() {
+        return Paths.get(System.getProperty(LOCAL_CONFIG_FILE_PROPERTY, LOCAL_CONFIG_FILE_NAME))
+                .toAbsolutePath();
+    }
+    
+    /**
+     * Grab a copy of every property, loading the config files if they have not been loaded yet.
+     * @return The properties.
+     */
+    public static synchronized Properties getProperties() {
+        Properties copy = new Properties();
+        copy.putAll(loaded());
+        return copy;
+    }
+    
+    /**
+     * Grab the property as a String.
+     * @param key The key desired
+     * @return The value, null if not found.
+     */
+    public static String getPropertyString(String key) {
+        Properties properties = loaded();
+        if (properties.containsKey(key)) {
+            return properties.getProperty(key);
+        } else {
+            System.err.println("Property \""  + key + "\" not found.");
+            return null;
         }
     }
     
@@ -49,8 +191,9 @@ public class Config {
      * @return The value as a boolean
      */
     public static Boolean getPropertyBoolean(String key) {
-        if (defaultProperties.containsKey(key)) {
-            return Boolean.valueOf(defaultProperties.getProperty(key));
+        Properties properties = loaded();
+        if (properties.containsKey(key)) {
+            return Boolean.valueOf(properties.getProperty(key));
         } else {
             System.err.println("Property \""  + key + "\" not found.");
             return null;
@@ -63,8 +206,24 @@ public class Config {
      * @return The value as an int.
      */
     public static int getPropertyInt(String key) {
-        if (defaultProperties.containsKey(key)) {
-            return Integer.parseInt(defaultProperties.getProperty(key));
+        Properties properties = loaded();
+        if (properties.containsKey(key)) {
+            return Integer.parseInt(properties.getProperty(key));
+        } else {
+            System.err.println("Property \""  + key + "\" not found.");
+            return 0;
+        }
+    }
+    
+    /**
+     * Grab the property and convert the value to a double.
+     * @param key The key desired
+     * @return The value as a double.
+     */
+    public static double getPropertyDouble(String key) {
+        Properties properties = loaded();
+        if (properties.containsKey(key)) {
+            return Double.parseDouble(properties.getProperty(key));
         } else {
             System.err.println("Property \""  + key + "\" not found.");
             return 0;
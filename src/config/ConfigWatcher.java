@@ -0,0 +1,148 @@
+package config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches the local config file and builds a new GameConfig whenever it changes.
+ *
+ * The file is read and validated on the watcher's own thread. The new
+ * configuration is only held until the controller takes it with
+ * takeReloadedConfig() at the end of a block, so a change never takes
+ * effect in the middle of a block or a trial. A file that fails
+ * validation is reported and ignored.
+ *
+ * Classes Related To:
+ *  -Config.java
+ *      -Re-reads the local config file on each change.
+ *  -GameConfig.java
+ *      -Each change produces a new GameConfig.
+ *  -DotsGameController.java
+ *      -Applies the newest GameConfig at block boundaries.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class ConfigWatcher {
+
+    /** Logger */
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Time in milliseconds to wait for an editor to finish writing the file. */
+    static final int SETTLE_TIME = 100;
+
+    /** The local config file. */
+    private final Path localConfigFile;
+
+    /** The newest configuration not yet taken, null if none. */
+    private final AtomicReference<GameConfig> reloadedConfig;
+
+    /** Thread waiting for changes, null if not started. */
+    private Thread watcherThread;
+
+    /**
+     * Constructor for ConfigWatcher. Call start() to begin watching.
+     * @param localConfigFile the local config file to watch. It does not need to exist yet.
+     */
+    public ConfigWatcher(Path localConfigFile) {
+        this.localConfigFile = localConfigFile.toAbsolutePath();
+        this.reloadedConfig = new AtomicReference<GameConfig>();
+    }
+
+    /**
+     * Start watching on a daemon thread. Does nothing if the file's directory cannot be watched.
+     */
+    public synchronized void start() {
+        if (this.watcherThread != null) {
+            return;
+        }
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            this.localConfigFile.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println("Could not watch local config file " + this.localConfigFile
+                    + " for changes.");
+            return;
+        }
+        this.watcherThread = new Thread(() -> this.watch(watchService), "Config watcher");
+        this.watcherThread.setDaemon(true);
+        this.watcherThread.setPriority(Thread.MIN_PRIORITY);
+        this.watcherThread.start();
+    }
+
+    /**
+     * Wait for changes to the local config file until interrupted.
+     * @param watchService watch service registered on the file's directory.
+     */
+    private void watch(WatchService watchService) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path
+                            && this.localConfigFile.getFileName().equals(context)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    Thread.sleep(SETTLE_TIME);
+                    this.reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            return;
+        } finally {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Re-read the config files and keep the result for the next block.
+     */
+    void reload() {
+        Config.reload();
+        try {
+            this.reloadedConfig.set(new GameConfig(Config.getProperties()));
+            logger.log(Level.INFO, "Reloaded " + this.localConfigFile
+                    + ". Changes apply from the next block.");
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring changes to " + this.localConfigFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Take the newest configuration read since the last call.
+     * @return the new configuration, or null if the file has not changed.
+     */
+    public GameConfig takeReloadedConfig() {
+        return this.reloadedConfig.getAndSet(null);
+    }
+
+    /**
+     * Stop watching.
+     */
+    public synchronized void stop() {
+        if (this.watcherThread != null) {
+            this.watcherThread.interrupt();
+            this.watcherThread = null;
+        }
+    }
+}
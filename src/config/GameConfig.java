@@ -0,0 +1,371 @@
+package config;
+
+import java.util.Properties;
+
+import model.PlacementStrategy;
+
+/**
+ * Immutable, typed snapshot of the configuration properties.
+ *
+ * Loaded and validated once at startup and injected (see AppInjector.java)
+ * into the controller and the DotsPairGenerator, which pass it down to
+ * DotsPair and DotSet. Generating stimuli therefore reads no files and
+ * can safely run on background threads.
+ *
+ * Classes Related To:
+ *  -Config.java
+ *      -Reads the properties file the snapshot is built from.
+ *
+ * @author Tony Jiang
+ *
+ */
+public final class GameConfig {
+
+    /** Snapshot of the default configuration, loaded on first use. */
+    private static GameConfig defaultConfig;
+
+    /** DotsGameController.java */
+    private final int flashTime;
+    private final int timeBetweenRounds;
+    private final boolean frameLocked;
+    private final double refreshRate;
+    private final double outputScale;
+    private final boolean proceduralMask;
+    private final boolean dotAtlasOn;
+    private final boolean dotAreaVerified;
+    private final boolean sessionResumed;
+
+    /** DataWriter.java */
+    private final ResultsCommit resultsCommit;
+    private final boolean resultsJournal;
+    private final int resultsCommitInterval;
+
+    /** DotSet.java, DotsPair.java */
+    private final int canvasWidth;
+    private final int canvasHeight;
+
+    /** DotsPairGenerator.java */
+    private final boolean sessionSeedSet;
+    private final long sessionSeed;
+
+    /** DotsPair.java */
+    private final boolean totalAreaControlOn;
+    private final boolean equalAreasOnly;
+    private final boolean inverseAreasOnly;
+    private final PlacementStrategy placementStrategy;
+    private final boolean renderedAreaControl;
+
+    /** DotSet.java */
+    private final boolean averageRadiusControl;
+    private final int averageDiameterArc;
+    private final int maxDiameterVarianceArc;
+    private final int minDiameter;
+    private final int maxDiameter;
+    private final int maxAttemptsPerDot;
+    private final double maxPackingDensity;
+
+    /**
+     * Build and validate a snapshot from a set of properties.
+     * @param properties the properties to read.
+     * @throws IllegalArgumentException if a property is missing or invalid.
+     */
+    public GameConfig(Properties properties) {
+        this.flashTime = readInt(properties, "flash.time");
+        this.timeBetweenRounds = readInt(properties, "time.between.rounds");
+        this.frameLocked = readPresentationMode(properties);
+        this.refreshRate = readDouble(properties, "refresh.rate");
+        this.outputScale = readDouble(properties, "output.scale");
+        this.proceduralMask = readMaskMode(properties);
+        this.dotAtlasOn = readDotRendering(properties);
+        this.dotAreaVerified = readBoolean(properties, "verify.dot.area");
+        this.sessionResumed = readBoolean(properties, "session.resume");
+
+        this.resultsCommit = ResultsCommit.fromConfig(read(properties, "results.commit"));
+        this.resultsCommitInterval = readInt(properties, "results.commit.interval");
+        this.resultsJournal = readBoolean(properties, "results.journal");
+
+        this.canvasWidth = readInt(properties, "canvas.width");
+        this.canvasHeight = readInt(properties, "canvas.height");
+
+        String seed = properties.getProperty("session.seed", "").trim();
+        this.sessionSeedSet = !seed.isEmpty();
+        this.sessionSeed = this.sessionSeedSet ? parseLong("session.seed", seed) : 0;
+
+        this.totalAreaControlOn = readBoolean(properties, "total.area.control.on");
+        this.equalAreasOnly = readBoolean(properties, "equal.areas.only");
+        this.inverseAreasOnly = readBoolean(properties, "inverse.areas.only");
+        this.placementStrategy = PlacementStrategy.fromConfig(read(properties, "placement.strategy"));
+        this.renderedAreaControl = readBoolean(properties, "rendered.area.control");
+
+        this.averageRadiusControl = readBoolean(properties, "average.radius.control");
+        this.averageDiameterArc = readInt(properties, "average.diameter.arc");
+        this.maxDiameterVarianceArc = readInt(properties, "max.diameter.variance.arc");
+        this.minDiameter = readInt(properties, "min.diameter");
+        this.maxDiameter = readInt(properties, "max.diameter");
+        this.maxAttemptsPerDot = readInt(properties, "max.attempts.per.dot");
+        this.maxPackingDensity = readDouble(properties, "max.packing.density");
+
+        this.validate();
+    }
+
+    /**
+     * The snapshot of the default configuration file. Loaded the first time it is needed.
+     * @return the default configuration.
+     */
+    public static synchronized GameConfig getDefault() {
+        if (defaultConfig == null) {
+            defaultConfig = new GameConfig(Config.getProperties());
+        }
+        return defaultConfig;
+    }
+
+    /**
+     * Forget the default snapshot so the next call to getDefault() reads the properties again.
+     */
+    static synchronized void clearDefault() {
+        defaultConfig = null;
+    }
+
+    /**
+     * Check that the values make sense together.
+     * @throws IllegalArgumentException if they do not.
+     */
+    private void validate() {
+        check(this.flashTime > 0, "flash.time must be positive");
+        check(this.timeBetweenRounds >= 0, "time.between.rounds must not be negative");
+        check(this.refreshRate > 0, "refresh.rate must be positive");
+        check(this.outputScale > 0, "output.scale must be positive");
+        check(this.resultsCommitInterval > 0, "results.commit.interval must be positive");
+        check(this.canvasWidth > 0 && this.canvasHeight > 0, "canvas.width and canvas.height must be positive");
+        check(this.minDiameter > 0, "min.diameter must be positive");
+        check(this.maxDiameter > this.minDiameter, "max.diameter must be greater than min.diameter");
+        check(this.maxDiameterVarianceArc > 0, "max.diameter.variance.arc must be positive");
+        check(this.averageDiameterArc > this.maxDiameterVarianceArc,
+                "average.diameter.arc must be greater than max.diameter.variance.arc");
+        check(this.maxAttemptsPerDot > 0, "max.attempts.per.dot must be positive");
+        check(this.maxPackingDensity > 0 && this.maxPackingDensity <= 1,
+                "max.packing.density must be between 0 and 1");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException("Invalid configuration: " + message);
+        }
+    }
+
+    private static String read(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Property \"" + key + "\" not found.");
+        }
+        return value.trim();
+    }
+
+    private static boolean readBoolean(Properties properties, String key) {
+        return Boolean.parseBoolean(read(properties, key));
+    }
+
+    private static boolean readPresentationMode(Properties properties) {
+        String mode = read(properties, "presentation.mode");
+        if (mode.equalsIgnoreCase("frames")) {
+            return true;
+        }
+        if (mode.equalsIgnoreCase("timer")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Property \"presentation.mode\" must be frames or timer: " + mode);
+    }
+
+    private static boolean readMaskMode(Properties properties) {
+        String mode = read(properties, "mask.mode");
+        if (mode.equalsIgnoreCase("procedural")) {
+            return true;
+        }
+        if (mode.equalsIgnoreCase("image")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Property \"mask.mode\" must be image or procedural: " + mode);
+    }
+
+    private static boolean readDotRendering(Properties properties) {
+        String mode = read(properties, "dot.rendering");
+        if (mode.equalsIgnoreCase("atlas")) {
+            return true;
+        }
+        if (mode.equalsIgnoreCase("ovals")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Property \"dot.rendering\" must be atlas or ovals: " + mode);
+    }
+
+    private static int readInt(Properties properties, String key) {
+        String value = read(properties, key);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Property \"" + key + "\" is not an integer: " + value);
+        }
+    }
+
+    private static double readDouble(Properties properties, String key) {
+        String value = read(properties, key);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Property \"" + key + "\" is not a number: " + value);
+        }
+    }
+
+    private static long parseLong(String key, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Property \"" + key + "\" is not an integer: " + value);
+        }
+    }
+
+    public int getFlashTime() {
+        return this.flashTime;
+    }
+
+    public int getTimeBetweenRounds() {
+        return this.timeBetweenRounds;
+    }
+
+    /**
+     * @return true if the dots and the mask are timed in display frames, false if in milliseconds.
+     */
+    public boolean isFrameLocked() {
+        return this.frameLocked;
+    }
+
+    public double getRefreshRate() {
+        return this.refreshRate;
+    }
+
+    /**
+     * @return output scale of the display the dots are rasterized at, 1 for no scaling.
+     */
+    public double getOutputScale() {
+        return this.outputScale;
+    }
+
+    /**
+     * @return true if a new mask is rendered for every trial, false if the mask images are shown.
+     */
+    public boolean isProceduralMask() {
+        return this.proceduralMask;
+    }
+
+    /**
+     * @return true if the dots are painted from pre-rasterized discs, false if as ovals.
+     */
+    public boolean isDotAtlasOn() {
+        return this.dotAtlasOn;
+    }
+
+    /**
+     * @return true if the rendered area of the dots is checked against their computed area.
+     */
+    public boolean isDotAreaVerified() {
+        return this.dotAreaVerified;
+    }
+
+    /**
+     * @return true if an interrupted session is resumed when the subject logs in again.
+     */
+    public boolean isSessionResumed() {
+        return this.sessionResumed;
+    }
+
+    /**
+     * @return when the results written so far are committed to the results file.
+     */
+    public ResultsCommit getResultsCommit() {
+        return this.resultsCommit;
+    }
+
+    /**
+     * @return milliseconds between commits when results.commit is interval.
+     */
+    public int getResultsCommitInterval() {
+        return this.resultsCommitInterval;
+    }
+
+    /**
+     * @return true if every trial is also written to the subject's trial journal.
+     */
+    public boolean isResultsJournal() {
+        return this.resultsJournal;
+    }
+
+    public int getCanvasWidth() {
+        return this.canvasWidth;
+    }
+
+    public int getCanvasHeight() {
+        return this.canvasHeight;
+    }
+
+    /**
+     * @return true if session.seed was set. Otherwise a new seed is picked each session.
+     */
+    public boolean isSessionSeedSet() {
+        return this.sessionSeedSet;
+    }
+
+    public long getSessionSeed() {
+        return this.sessionSeed;
+    }
+
+    public boolean isTotalAreaControlOn() {
+        return this.totalAreaControlOn;
+    }
+
+    public boolean isEqualAreasOnly() {
+        return this.equalAreasOnly;
+    }
+
+    public boolean isInverseAreasOnly() {
+        return this.inverseAreasOnly;
+    }
+
+    public PlacementStrategy getPlacementStrategy() {
+        return this.placementStrategy;
+    }
+
+    /**
+     * @return true if areas are matched as they are rendered, false if as pi * r^2.
+     */
+    public boolean isRenderedAreaControl() {
+        return this.renderedAreaControl;
+    }
+
+    public boolean isAverageRadiusControl() {
+        return this.averageRadiusControl;
+    }
+
+    public int getAverageDiameterArc() {
+        return this.averageDiameterArc;
+    }
+
+    public int getMaxDiameterVarianceArc() {
+        return this.maxDiameterVarianceArc;
+    }
+
+    public int getMinDiameter() {
+        return this.minDiameter;
+    }
+
+    public int getMaxDiameter() {
+        return this.maxDiameter;
+    }
+
+    public int getMaxAttemptsPerDot() {
+        return this.maxAttemptsPerDot;
+    }
+
+    public double getMaxPackingDensity() {
+        return this.maxPackingDensity;
+    }
+}
@@ -0,0 +1,39 @@
+package config;
+
+/**
+ * Enum ResultsCommit describing when the results of the trials written so far
+ * are committed to the results file (handed to the operating system, so they
+ * survive the game crashing).
+ * 
+ * Selected with results.commit in defaultconfig.properties. The results are
+ * also committed and forced to disk when the game exits.
+ * 
+ * @author Tony Jiang
+ *
+ */
+public enum ResultsCommit {
+    
+    /** After every trial. */
+    TRIAL,
+    
+    /** After the last trial of every block. */
+    BLOCK,
+    
+    /** After the first trial at least results.commit.interval milliseconds after the last commit. */
+    INTERVAL;
+    
+    /**
+     * Parse the value of results.commit.
+     * @param value "trial", "block" or "interval".
+     * @return the matching commit point.
+     * @throws IllegalArgumentException if the value is not recognized.
+     */
+    public static ResultsCommit fromConfig(String value) {
+        for (ResultsCommit commit : values()) {
+            if (commit.name().equalsIgnoreCase(value.trim())) {
+                return commit;
+            }
+        }
+        throw new IllegalArgumentException("Property \"results.commit\" must be trial, block or interval: " + value);
+    }
+}
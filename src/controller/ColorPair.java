@@ -1,4 +1,4 @@
-package model;
+package controller;
 
 import javafx.scene.paint.Color;
 
@@ -1,13 +1,10 @@
 package controller;
 
-import java.io.BufferedWriter;
-import java.util.logging.Logger;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 
-import model.ControlType;
+import config.GameConfig;
 import model.DotsPair;
 import model.Player;
 
@@ -15,9 +12,21 @@ import model.Player;
 /**
  * Class for grabbing and exporting data to a CSV file.
  * 
+ * The data of each trial is copied into an immutable TrialRecord and handed
+ * to a ResultsQueue, whose thread formats it and writes it, so the game never
+ * waits on the disk.
+ * 
  * Classes Related to:
  *  -DotsGameController.java
  *      -Grabs DotsPair and Player from the controller to record and export their data.
+ *  -TrialRecord.java
+ *      -The data of one trial.
+ *  -ResultsQueue.java
+ *      -Writes the records in the background.
+ *  -TrialEncoder.java
+ *      -Encodes a record as a line of the CSV.
+ *  -TrialJournal.java
+ *      -Binary copy of the records that survives a crash.
  * 
  * @author Tony Jiang
  * 6-25-2015
@@ -25,7 +34,8 @@ import model.Player;
  */
 public class DataWriter {
 
-    private static Logger logger = Logger.getLogger("mylog");
+    /** Folder the results are written in, one subfolder per subject. */
+    public static final String RESULTS_FOLDER = "results_dots";
     
     public static final String DELIMITER = ",";
     public static final String SUBJECT_ID = "Subject ID";
@@ -50,17 +60,37 @@ public class DataWriter {
     public static final String SECTION = "Section";
     public static final String FEEDBACK_GIVEN = "Feedback given";
     public static final String KEY_FOR_YES = "Key for \"Yes\" ";
+    public static final String DOT_PLACEMENT = "Dot Placement";
+    public static final String PLACEMENT_ROUNDS = "Placement Rounds";
+    public static final String DIAMETER_SCALE = "Diameter Scale";
+    public static final String SESSION_SEED = "Session Seed";
+    public static final String TRIAL_SEED = "Trial Seed";
+    public static final String FLASH_INTENDED = "Flash Time Intended (ms)";
+    public static final String FLASH_FRAMES_INTENDED = "Flash Frames Intended";
+    public static final String FLASH_ONSET = "Flash Onset (ns)";
+    public static final String FLASH_OFFSET = "Flash Offset (ns)";
+    public static final String FLASH_MEASURED = "Flash Time Measured (ms)";
+    public static final String FLASH_FRAMES_SHOWN = "Flash Frames Shown";
+    public static final String MASK_INTENDED = "Mask Time Intended (ms)";
+    public static final String MASK_FRAMES_INTENDED = "Mask Frames Intended";
+    public static final String MASK_ONSET = "Mask Onset (ns)";
+    public static final String MASK_OFFSET = "Mask Offset (ns)";
+    public static final String MASK_MEASURED = "Mask Time Measured (ms)";
+    public static final String MASK_FRAMES_SHOWN = "Mask Frames Shown";
+    public static final String RESPONSE_TIME_CORRECTED = "Response Time Corrected";
+    public static final String DOTS_PRERENDER_TIME = "Dots Prerender Time (ms)";
+    public static final String DOTS_SWAP_TIME = "Dots Swap Time (ms)";
     
     
-    /** The subject to grab data from. */
-    private Player player;
-    /** DotsPair to grab data from. */
-    private DotsPair dotsPair;
-    /** DotsGameController */
-    private DotsGameController dgc;
-    private String colorOne;
-    private String colorTwo;
-    private int section;
+    /** Configuration, for when to commit the results. */
+    private GameConfig config;
+    /** Writes the records, started at the first trial. */
+    private ResultsQueue queue;
+    /** Data of the trial grabbed last, completed when it is written. */
+    private TrialRecord.Builder trial;
+    /** Presentation of the dots and the mask of the trial grabbed last, null if not shown. */
+    private FramePresenter.StimulusPhase flashPhase;
+    private FramePresenter.StimulusPhase maskPhase;
     
     /**
      * Constructor for data writer that takes in a controller
@@ -68,292 +98,207 @@ public class DataWriter {
      * @param dgc Controller to grab data from
      */
     public DataWriter(DotsGameController dgc) {
-        this.player = dgc.getThePlayer();
-        this.dotsPair = dgc.getCurrentDotsPair();
-        this.dgc = dgc;
+        this.config = dgc.getConfig();
+        this.trial = new TrialRecord.Builder().player(dgc.getThePlayer());
     }
     
     /**
-     * Regrab the current subject and dots pair from the controller.
-     * @param dgc Controller to grab data from
+     * Constructor for data writer of a subject and dots pair, without a controller.
+     * Everything else grabData() would take from the controller is left blank.
+     * @param player The subject.
+     * @param dotsPair The dots pair of the trial.
      */
-    public void grabData(DotsGameController dgc) {
-        this.player = dgc.getThePlayer();
-        this.dotsPair = dgc.getCurrentDotsPair();
-        this.colorOne = dgc.getColorOne();
-        this.colorTwo = dgc.getColorTwo();
-        this.section = dgc.getDpg().getNumSections();
+    public DataWriter(Player player, DotsPair dotsPair) {
+        this.config = GameConfig.getDefault();
+        this.trial = new TrialRecord.Builder().player(player).dotsPair(dotsPair)
+                .dateTime(LocalDateTime.now());
     }
     
     /**
-     * Export data to CSV file. Appends to current CSV if data
-     * for subject already exists.
-     * Location of CSV file is in folder "results". "Results" will contain
-     * subfolders each titled by Subject ID number containing the subject's
-     * CSV data. 
+     * Grab the current subject, dots pair and trial from the controller.
+     * Everything written for the trial is copied now, so writing it later
+     * does not depend on what the controller is doing by then. Only the
+     * timing of the dots and the mask is read when the trial is written,
+     * once they are off the screen.
+     * @param dgc Controller to grab data from
      */
-    public void writeToCSV() {
-        
-        PrintWriter writer = null;
-        String subjectId = this.player.getSubjectID();
-        try {
-            /** Grab path to project */
-            String path = new File(".").getAbsolutePath();
-            path = path.substring(0, path.length() - 1);
-            
-            /** Create results folder if doesn't exist */
-            File resultsDir = new File("results_dots");
-            resultsDir.mkdir();
-            
-            /** Create subject folder if doesn't exist */
-            File subjectDir = new File("results_dots\\" + subjectId);
-            subjectDir.mkdir();    
-            
-            /** Create new csv file for subject if doesn't exist */
-            File file = new File(path + "\\results_dots\\" + subjectId 
-                    + "\\results_" + subjectId + ".csv");   
-            logger.info(file.getPath());
-            String text = "";
-            /** Write data to new file or append to old file */
-            if (file.createNewFile()) {
-                text += this.generateColumnNames();
-            }
-            text += this.generateTrialText();
-            writer = new PrintWriter(
-                        new BufferedWriter(
-                            new FileWriter(file, true)));
-            writer.write(text);
-            
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            
-        } finally {
-            writer.flush();
-            writer.close();
-        } 
+    public void grabData(DotsGameController dgc) {
+        this.config = dgc.getConfig();
+        this.trial = new TrialRecord.Builder()
+                .player(dgc.getThePlayer())
+                .dotsPair(dgc.getCurrentDotsPair())
+                .colors(dgc.getColorOne(), dgc.getColorTwo())
+                .block(dgc.getLastBlock(), dgc.getDpg().getNumSections())
+                .sessionSeed(dgc.getDpg().getSessionSeed())
+                .yesCorrect(dgc.isYesCorrect())
+                .FforTrue(dgc.isFforTrue())
+                .renderTimes(dgc.getPrerenderTime(), dgc.getSwapTime())
+                .dateTime(LocalDateTime.now());
+        this.flashPhase = dgc.getFlashPhase();
+        this.maskPhase = dgc.getMaskPhase();
     }
     
     /**
-     * Generate the column names.
-     * @return String column names.
+     * Complete the record of the trial grabbed last.
+     * @param lastOfBlock true if the trial was the last of its block.
+     * @return the record.
      */
-    private String generateColumnNames() {
-        String text = SUBJECT_ID + DELIMITER
-                + SUBJECT_AGE + DELIMITER
-                + SUBJECT_GENDER + DELIMITER
-                + LEFT_CHOICE + DELIMITER
-                + RIGHT_CHOICE + DELIMITER
-                + TOTAL_DOTS + DELIMITER
-                + WHICH_SIDE_CORRECT + DELIMITER
-                + WHICH_SIDE_PICKED + DELIMITER
-                + IS_CORRECT + DELIMITER
-                + BLOCK + DELIMITER
-                + CONTROL_TYPE + DELIMITER 
-                + NUMBER_DOTS_RATIO + DELIMITER
-                + PERCENTAGE + DELIMITER
-                + AREA_RATIO + DELIMITER    
-                + COLOR_ONE + DELIMITER
-                + COLOR_TWO + DELIMITER
-                + RESPONSE_TIME + DELIMITER
-                + DATE_TIME + DELIMITER
-                + CONSECUTIVE_ROUND + DELIMITER
-                + SECTION + DELIMITER
-                + FEEDBACK_GIVEN + DELIMITER
-                + KEY_FOR_YES + "\n";
-        return text;
+    public TrialRecord snapshot(boolean lastOfBlock) {
+        return this.trial
+                .timings(TrialRecord.Timing.of(this.flashPhase), TrialRecord.Timing.of(this.maskPhase))
+                .lastOfBlock(lastOfBlock)
+                .build();
     }
-
+    
     /**
-     * Generate the CSV text data for the round (one pair).
-     * @return String CSV text data
+     * Export data to CSV file. Appends to current CSV if data
+     * for subject already exists.
+     * Location of CSV file is in folder "results_dots". "results_dots" will contain
+     * subfolders each titled by Subject ID number containing the subject's
+     * CSV data. The record of the trial is queued and written in the background;
+     * it is committed to the file as results.commit says. Never blocks.
+     * @param lastOfBlock true if the trial was the last of its block.
      */
-    public String generateTrialText() {
-        String subjectID = this.generateSubjectIdText();
-        String subjectAge = this.generateSubjectAgeText();
-        String subjectGender = this.generateSubjectGenderText();
-        String leftChoice = this.generateLeftChoiceText();       
-        String rightChoice = this.generateRightChoiceText();
-        String totalDots = this.generateTotalDotsText();
-        String whichSideCorrect = this.generateWhichSideCorrectText();
-        String whichSidePicked = this.generateWhichSidePickedText(whichSideCorrect);
-        String correct = this.generateCorrectText();
-        String block = this.generateBlockText();
-        String controlType = this.generateControlTypeText();
-        String numDotsRatio = this.generateNumDotsRatioText();
-        String percentage = this.generatePercentageText();
-        String areaRatio = this.generateAreaRatioText();
-        String colorOne = this.generateColorOneText();
-        String colorTwo = this.generateColorTwoText();
-        String responseTime = this.generateResponseTimeText();
-        String dateTime = this.generateDateTimeText();
-        String consecutiveRounds = this.generateConsecutiveRoundsText();
-        String section = this.generateSectionText();
-        String feedbackGiven = this.generateFeedbackGivenText();
-        String keyForYes = this.generateKeyForYesText();
-        
-        String trialText = subjectID + DELIMITER
-                + subjectAge + DELIMITER
-                + subjectGender + DELIMITER
-                + leftChoice + DELIMITER
-                + rightChoice + DELIMITER
-                + totalDots + DELIMITER
-                + whichSideCorrect + DELIMITER
-                + whichSidePicked + DELIMITER
-                + correct + DELIMITER
-                + block + DELIMITER
-                + controlType + DELIMITER
-                + numDotsRatio + DELIMITER
-                + percentage + DELIMITER
-                + areaRatio + DELIMITER
-                + colorOne + DELIMITER
-                + colorTwo + DELIMITER
-                + responseTime + DELIMITER
-                + dateTime + DELIMITER
-                + consecutiveRounds + DELIMITER
-                + section + DELIMITER
-                + feedbackGiven + DELIMITER
-                + keyForYes + "\n";
-        
-        return trialText;
-    }
-    
-    private String generateSubjectIdText() {
-        return this.player.getSubjectID();
-    }
-    
-    private String generateSubjectAgeText() {
-        return Integer.toString(
-                this.player.getSubjectAge());
-    }
-    
-    private String generateSubjectGenderText() {
-        return this.player.getSubjectGender().toString();
-    }
-    
-    private String generateLeftChoiceText() {
-        return Integer.toString(
-                this.dotsPair.getDotSetOne().getPositions().size());
-    }
-    
-    private String generateRightChoiceText() {
-        return Integer.toString(
-                this.dotsPair.getDotSetTwo().getPositions().size());
-    }
-    
-    private String generateTotalDotsText() {
-        return Integer.toString(
-                this.dotsPair.getDotSetOne().getPositions().size()
-                + this.dotsPair.getDotSetTwo().getPositions().size());
-    }
-    
-    private String generateWhichSideCorrectText() {
-        if (this.dgc.isYesCorrect()) {
-            return "YES";
-        } else {
-            return "NO";
-        }
-    }
-    
-    private String generateWhichSidePickedText(String whichSideCorrect) {
-        if (this.player.isRight()) {
-            return whichSideCorrect;
-        } else {
-            if (whichSideCorrect.equals("YES")) {
-                return "NO";
-            } else {
-                return "YES";
-            }
-        }
+    public void writeToCSV(boolean lastOfBlock) {
+        this.getQueue().submit(this.snapshot(lastOfBlock));
     }
     
-    private String generateCorrectText() {
-        if (this.player.isRight()) {
-            return "yes";
-        } else {
-            return "no";
+    /**
+     * @return the queue, started if it was not.
+     */
+    private ResultsQueue getQueue() {
+        if (this.queue == null) {
+            this.queue = new ResultsQueue(this.config.getResultsCommit(), this.config.getResultsCommitInterval(),
+                    this.config.isResultsJournal());
         }
+        return this.queue;
     }
     
-    private String generateBlockText() {
-        return Integer.toString(this.dgc.getLastBlock());
+    /**
+     * Have a checkpoint of the session written once the trials queued so far are,
+     * in the background. Never blocks.
+     * @param checkpoint the checkpoint.
+     */
+    public void writeCheckpoint(SessionCheckpoint checkpoint) {
+        this.getQueue().submitCheckpoint(checkpoint);
     }
     
-    
-    private String generateControlTypeText() {
-        if (this.dotsPair.getControlType() == ControlType.EQUAL_AREAS) {
-            return "Equal Areas";
-        } else if (this.dotsPair.getControlType() == ControlType.INVERSE_AREAS) {
-            return "Inverse Areas";
-        } else if (this.dotsPair.getControlType() == ControlType.RADIUS_AVERAGE_EQUAL) {
-            return "Equal Average Radii";
-        } else if (this.dotsPair.getControlType() == ControlType.NONE) {
-            return "None";
-        } 
-        return "-";
+    /**
+     * Have a subject's checkpoint deleted, in the background, once the session is over.
+     * Never blocks.
+     * @param subjectId ID of the subject.
+     */
+    public void deleteCheckpoint(String subjectId) {
+        this.getQueue().deleteCheckpoint(subjectId);
     }
     
-    private String generateNumDotsRatioText() {
-        double ratio = ((double) this.dotsPair.getDotSetOne().getTotalNumDots()) / this.dotsPair.getDotSetTwo().getTotalNumDots();
-        if (ratio < 1) {
-            ratio = 1 / ratio;
+    /**
+     * Have every trial queued so far written and forced to disk, in the background.
+     * Never blocks.
+     */
+    public void flush() {
+        if (this.queue != null) {
+            this.queue.flush();
         }
-        return Double.toString(ratio);
-    }
-    
-    private String generatePercentageText() {
-        double percentage = 
-                ((double) this.dotsPair.getDotSetOne().getTotalNumDots() / 
-                        (this.dotsPair.getDotSetOne().getTotalNumDots() 
-                                + this.dotsPair.getDotSetTwo().getTotalNumDots()));
-        return Double.toString(percentage);
     }
     
-    private String generateAreaRatioText() {
-        double ratio = ((double) this.dotsPair.getDotSetOne().getTotalArea() / this.dotsPair.getDotSetTwo().getTotalArea());
-        if (ratio < 1) {
-            ratio = 1 / ratio;
+    /**
+     * Write every trial queued so far, force the results file to disk and close it.
+     * Waits for the writer; call before the game exits. The next trial written starts it again.
+     */
+    public void close() {
+        if (this.queue != null) {
+            this.queue.close();
+            this.queue = null;
         }
-        return Double.toString(ratio);
-    }
-    
-    private String generateColorOneText() {
-        return this.colorOne;
-    }
-    
-    private String generateColorTwoText() {
-        return this.colorTwo;
     }
     
-    private String generateResponseTimeText() {
-        return String.valueOf(this.player.getRT() / 1000000000.0);
+    /**
+     * @param subjectId ID of the subject.
+     * @return the results file of the subject, relative to the working directory.
+     */
+    public static Path resultsFile(String subjectId) {
+        return Paths.get(RESULTS_FOLDER, subjectId, "results_" + subjectId + ".csv");
     }
     
-    private String generateDateTimeText() {
-        return LocalDateTime.now().toString();
+    /**
+     * @param subjectId ID of the subject.
+     * @return the trial journal of the subject, next to the results file.
+     */
+    public static Path journalFile(String subjectId) {
+        return Paths.get(RESULTS_FOLDER, subjectId, "journal_" + subjectId + ".bin");
     }
     
-    private String generateConsecutiveRoundsText() {
-        return Integer.toString(
-                this.player.getNumRounds());
+    /**
+     * @param subjectId ID of the subject.
+     * @return the checkpoint of the subject's session, next to the results file.
+     */
+    public static Path checkpointFile(String subjectId) {
+        return Paths.get(RESULTS_FOLDER, subjectId, "checkpoint_" + subjectId + ".bin");
     }
     
-    private String generateSectionText() {
-        return Integer.toString(this.section);
-    }
+    /** Column names, the first line of the CSV. */
+    private static final String COLUMN_NAMES = SUBJECT_ID + DELIMITER
+            + SUBJECT_AGE + DELIMITER
+            + SUBJECT_GENDER + DELIMITER
+            + LEFT_CHOICE + DELIMITER
+            + RIGHT_CHOICE + DELIMITER
+            + TOTAL_DOTS + DELIMITER
+            + WHICH_SIDE_CORRECT + DELIMITER
+            + WHICH_SIDE_PICKED + DELIMITER
+            + IS_CORRECT + DELIMITER
+            + BLOCK + DELIMITER
+            + CONTROL_TYPE + DELIMITER 
+            + NUMBER_DOTS_RATIO + DELIMITER
+            + PERCENTAGE + DELIMITER
+            + AREA_RATIO + DELIMITER    
+            + COLOR_ONE + DELIMITER
+            + COLOR_TWO + DELIMITER
+            + RESPONSE_TIME + DELIMITER
+            + DATE_TIME + DELIMITER
+            + CONSECUTIVE_ROUND + DELIMITER
+            + SECTION + DELIMITER
+            + FEEDBACK_GIVEN + DELIMITER
+            + KEY_FOR_YES + DELIMITER
+            + DOT_PLACEMENT + DELIMITER
+            + PLACEMENT_ROUNDS + DELIMITER
+            + DIAMETER_SCALE + DELIMITER
+            + SESSION_SEED + DELIMITER
+            + TRIAL_SEED + DELIMITER
+            + FLASH_INTENDED + DELIMITER
+            + FLASH_FRAMES_INTENDED + DELIMITER
+            + FLASH_ONSET + DELIMITER
+            + FLASH_OFFSET + DELIMITER
+            + FLASH_MEASURED + DELIMITER
+            + FLASH_FRAMES_SHOWN + DELIMITER
+            + MASK_INTENDED + DELIMITER
+            + MASK_FRAMES_INTENDED + DELIMITER
+            + MASK_ONSET + DELIMITER
+            + MASK_OFFSET + DELIMITER
+            + MASK_MEASURED + DELIMITER
+            + MASK_FRAMES_SHOWN + DELIMITER
+            + RESPONSE_TIME_CORRECTED + DELIMITER
+            + DOTS_PRERENDER_TIME + DELIMITER
+            + DOTS_SWAP_TIME + "\n";
     
-    private String generateFeedbackGivenText() {
-        if (this.section >= DotsGameController.SECTION_TO_START_FEEDBACK) {
-            return "Yes";
-        } else {
-            return "No";
-        }
+    /**
+     * Generate the column names.
+     * @return String of column names, built once.
+     */
+    public static String generateColumnNames() {
+        return COLUMN_NAMES;
     }
     
-    private String generateKeyForYesText() {
-        if (this.dgc.isFforTrue()) {
-            return "F";
-        } else {
-            return "J";
-        }
+    /**
+     * Generate the CSV text data for the round (one pair). The results
+     * file is written with a reused TrialEncoder instead; this is for
+     * a single line.
+     * @param trial the record of the trial.
+     * @return String CSV text data
+     */
+    public static String generateTrialText(TrialRecord trial) {
+        TrialEncoder encoder = new TrialEncoder();
+        encoder.encode(trial);
+        return encoder.toString();
     }
 }
@@ -1,34 +1,45 @@
 package controller;
 
-import java.net.URL;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Random;
+import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.inject.Inject;
 
-import config.Config;
-import model.ColorPair;
+import config.ConfigWatcher;
+import config.GameConfig;
 import model.DotSet;
 import model.DotsPair;
 import model.DotsPairGenerator;
 import model.DotsPairGeneratorInterface;
 import model.GameLogic;
 import model.Player;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.concurrent.Task;
-import javafx.concurrent.WorkerStateEvent;
+import model.RenderedAreaTable;
+import model.SessionRandom;
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
 import javafx.event.EventHandler;
 import javafx.scene.Scene;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
-import javafx.scene.media.AudioClip;
 import javafx.scene.paint.Color;
+import javafx.util.Duration;
+import view.DiscAtlas;
 import view.GameGUI;
+import view.ProceduralMask;
+import view.RenderedAreaCalibration;
+import view.SetUp;
 
 /**
  * 
@@ -54,6 +65,20 @@ import view.GameGUI;
  *      -Calls on GameLogic to evaluate the correctness of a response from the subject.
  *  -DataWriter.java
  *      -Passes information (Player and DotsPair) to DataWriter to be exported.
+ *  -TrialTimer.java
+ *      -Schedules the end of the flash, the end of the mask and the end of the get ready bar.
+ *  -FramePresenter.java
+ *      -Counts the frames the dots and the mask are shown for and records their onsets and offsets.
+ *  -InputTimestamper.java
+ *      -Timestamps F and J presses for the corrected response time.
+ *  -TrialStateMachine.java
+ *      -Holds the state of the current trial. Every change of state goes through it.
+ *  -SoundCache.java
+ *      -Plays the feedback sounds from clips decoded at startup.
+ *  -StimulusBuffer.java (view)
+ *      -Draws the next trial's dots between trials so that showing them is only a swap.
+ *  -SessionCheckpoint.java
+ *      -Holds the state of the session after each trial, to resume it from if the game exits early.
  *      
  * @author Tony Jiang
  * 6-25-2015
@@ -65,7 +90,6 @@ public class DotsGameController implements GameController {
     private static Logger logger = Logger.getLogger("mylog");
     
     /** Color of the canvas. In this assessment, should be same color as background. */
-    final static Color CANVAS_COLOR = Color.web("#707070");
             
     /** Time in milliseconds for the player to get ready after pressing start */
     final static int GET_READY_TIME = 2000;
@@ -73,17 +97,14 @@ public class DotsGameController implements GameController {
     /** Time in milliseconds to show mask */
     final static int MASK_TIME = 100;
 
-    /** Each section contains all four blocks. */
-    private static final int NUM_SECTIONS = 6;
-    
     /** On which section should feedback begin to play. */
     public static final int SECTION_TO_START_FEEDBACK = 4;
            
-    /** Time between rounds in milliseconds. */
-    static int TIME_BETWEEN_ROUNDS;
+    /** Configuration snapshot, including the flash time and time between rounds. */
+    private GameConfig config;
     
-    /** Time in milliseconds that the DotSets flash */
-    static int FLASH_TIME;
+    /** Watches the local config file. Changes are applied between blocks. */
+    private ConfigWatcher configWatcher;
     
     /** DataWriter to export data to CSV. */
     private DataWriter dataWriter;
@@ -94,8 +115,6 @@ public class DotsGameController implements GameController {
     private GameGUI theView;
     /** The current scene. */
     private Scene theScene;
-    /** Canvas Graphics Context */
-    private GraphicsContext graphicsContextCanvas;
     
     /** Colors to use in each block */
     private ArrayList<ColorPair> colorPairs;
@@ -118,15 +137,21 @@ public class DotsGameController implements GameController {
     private Player thePlayer;
     /** The current DotsPair being evaluated by the subject. */
     private DotsPair currentDotsPair;
+    
+    /** Pair of the next trial, already drawn into the back buffer. Null if not drawn yet. */
+    private DotsPair nextDotsPair;
+    
+    /** Nanoseconds it took to rasterize the dots of the current trial. */
+    private long prerenderTime;
         
     /** Used to measure response time. */
-    private static long responseTimeMetric;
+    private long responseTimeMetric;
     
     /** Current state of the overall game. */
-    public static CurrentState state;
+    private volatile CurrentState state;
     
     /** Describes the current state of gameplay */
-    private static GameState gameState;
+    private TrialStateMachine trialState;
     
     private static final Color BLUE = Color.BLUE;
     private static final Color YELLOW = Color.YELLOW;
@@ -137,55 +162,95 @@ public class DotsGameController implements GameController {
     private static final Color BROWN = Color.BROWN;
     private static final Color CYAN = Color.CYAN;
     
-    private enum GameState {
-        /** User is being shown the dots. */
-        DISPLAYING_DOTS,
-
-        /** Displaying mask */
-        MASK,
-        
-        /** Question is being shown. Waiting for response from user. Recording reponse time. */
-        WAITING_FOR_RESPONSE,
-        
-        /** Waiting for the player to press space to continue */
-        PRESS_SPACE_TO_CONTINUE,
-        
-        /** Between blocks. (Not active gameplay) */
-        CHANGING_BLOCKS,
-    }
+    /** Timer for the timed events of each trial. */
+    private TrialTimer trialTimer;
+    
+    /** Pending end of the flash of the dots, null if none. */
+    private TrialTimer.ScheduledEvent flashEnd;
+    
+    /** Pending end of the mask, null if none. */
+    private TrialTimer.ScheduledEvent maskEnd;
+    
+    /** Times the dots and the mask by display pulses. */
+    private FramePresenter framePresenter;
+    
+    /** Presentation of the dots in the current trial. */
+    private FramePresenter.StimulusPhase flashPhase;
+    
+    /** Presentation of the mask in the current trial. */
+    private FramePresenter.StimulusPhase maskPhase;
+    
+    /** Color of the mask in the current block. */
+    private Color maskColor;
+    private String maskColorName;
+    
+    /** Renders the mask of each trial when mask.mode is procedural, null until first needed. */
+    private ProceduralMask proceduralMask;
+    
+    /** Pre-rasterized discs of each dot color, used when dot.rendering is atlas. */
+    private HashMap<Color, DiscAtlas> discAtlases;
+    
+    /** Rendered area of a dot by diameter on this display, null until rendered.area.control is first on. */
+    private RenderedAreaTable renderedAreas;
+    
+    /** Relative difference between rendered and computed area above which a warning is logged. */
+    private static final double AREA_TOLERANCE = 0.01;
+    
+    /** Timestamps key presses when the window receives them. */
+    private InputTimestamper inputTimestamper;
+    
+    /** InputTimestamper timestamp of the response being handled. */
+    private long responseKeyTime;
+    
+    /** Decoded feedback sounds. */
+    private SoundCache soundCache;
     
-    /**
-     * Lock for locking threads.
-     */
-    private Object lock = new Object();
     /** Number of rounds the player is into the current block. */
     private int numRoundsIntoBlock;
         
     /** Alternate reference to "this" to be used in inner methods */
     private DotsGameController gameController;
-        
-    private static boolean feedback_given;
     
-    private Random randomGenerator = new Random();
+    /** Random number generator, seeded from the session seed. */
+    private SessionRandom randomGenerator;
     
     /** 
      * Constructor for the controller. There is only meant
      * to be one instance of the controller. Attaches listener
      * for when user provides response during trials. On a response,
      * prepare the next round and record the data.
-     * @param view The graphical user interface.
+     * @param dpg The DotsPairGenerator.
+     * @param config The configuration snapshot.
+     * @param configWatcher Watcher of the local config file.
      */
     @Inject
-    public DotsGameController(DotsPairGeneratorInterface dpg) {
-        loadConfig();
+    public DotsGameController(DotsPairGeneratorInterface dpg, GameConfig config, 
+            ConfigWatcher configWatcher) {
+        this.config = config;
+        this.configWatcher = configWatcher;
+        this.trialTimer = new TrialTimer();
+        this.framePresenter = new FramePresenter();
+        this.framePresenter.start();
+        this.inputTimestamper = new InputTimestamper();
+        this.trialState = new TrialStateMachine();
+        this.soundCache = new SoundCache();
         this.gameController = this;
         this.dpg = dpg;
+        this.randomGenerator = dpg.createSessionRandom();
         this.currentDotsPair = null;
 //        this.theView = view;
 //        this.theScene = view.getScene();
         this.thePlayer = new Player();
         this.dataWriter = new DataWriter(this);
         this.initializeColors();
+        this.discAtlases = new HashMap<Color, DiscAtlas>();
+        if (this.config.isDotAtlasOn()) {
+            for (ColorPair colorPair : this.colorPairs) {
+                this.getDiscAtlas(colorPair.getColorOne());
+                this.getDiscAtlas(colorPair.getColorTwo());
+            }
+        }
+        this.updateRenderedAreaControl();
         this.updateDotColors();
 //        this.changeMaskColor();
         this.setFandJ();
@@ -199,15 +264,6 @@ public class DotsGameController implements GameController {
         this.colorPairs.add(new ColorPair(CYAN, BROWN, "Cyan", "Brown"));
     }
 
-    /** 
-     * Load configuration settings. 
-     */
-    private void loadConfig() {
-        new Config();
-        FLASH_TIME = Config.getPropertyInt("flash.time");
-        TIME_BETWEEN_ROUNDS = Config.getPropertyInt("time.between.rounds");
-    }
-    
     /**
      * Determine which of F and J is for "Yes"/"No".
      */
@@ -281,11 +337,120 @@ public class DotsGameController implements GameController {
             theView.getFeedbackAge().setVisible(true);
             return;
         }
-        theView.setInstructionsScreen(); 
-        this.setKeyGuides();
         logger.log(Level.INFO, "Subject ID: " + thePlayer.getSubjectID());
         logger.log(Level.INFO, "Subject Gender: " + thePlayer.getSubjectGender());
         logger.log(Level.INFO, "Subject Age: "  + thePlayer.getSubjectAge());
+        if (this.resumeInterruptedSession()) {
+            return;
+        }
+        theView.setInstructionsScreen(); 
+        this.setKeyGuides();
+    }
+    
+    /**
+     * If session.resume is on and the subject's last session was interrupted,
+     * restore it from its checkpoint and continue at the trial after the last
+     * one completed, skipping the instructions and the practice. A checkpoint
+     * that cannot be read is reported and the session starts over.
+     * @return true if a session was resumed.
+     */
+    private boolean resumeInterruptedSession() {
+        if (!this.config.isSessionResumed()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        boolean betweenBlocks;
+        try {
+            SessionCheckpoint checkpoint = SessionCheckpoint.read(
+                    DataWriter.checkpointFile(thePlayer.getSubjectID()));
+            if (checkpoint == null) {
+                return false;
+            }
+            betweenBlocks = this.restoreCheckpoint(checkpoint);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        state = CurrentState.GAMEPLAY;
+        this.trialState.enter(GameState.CHANGING_BLOCKS);
+        theView.setResumeScreen(betweenBlocks, dpg.getBlockMode(), colorOne, colorTwo);
+        this.setKeyGuides();
+        logger.log(Level.INFO, "Resumed the session after " + thePlayer.getNumRounds() + " trials in "
+                + (System.nanoTime() - start) / 1000000.0 + " ms");
+        return true;
+    }
+    
+    /**
+     * Checkpoint the session at the end of a trial: the subject's score, the
+     * place in the block, the keys, the colors, the state of the random number
+     * generator and the state of the DotsPairGenerator.
+     * @param betweenBlocks true if the trial was the last of its block.
+     * @return the checkpoint.
+     */
+    private SessionCheckpoint createCheckpoint(boolean betweenBlocks) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeBoolean(betweenBlocks);
+            out.writeInt(this.thePlayer.getNumCorrect());
+            out.writeInt(this.thePlayer.getNumRounds());
+            out.writeInt(this.numRoundsIntoBlock);
+            out.writeBoolean(this.FforTrue);
+            out.writeInt(this.lastBlock);
+            out.writeUTF(this.colorOne);
+            out.writeByte(this.colorPairs.size());
+            for (ColorPair colorPair : this.colorPairs) {
+                out.writeUTF(colorPair.getColorOneName());
+            }
+            out.writeUTF(this.maskColorName);
+            out.writeLong(this.randomGenerator.getState());
+            this.dpg.writeState(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new SessionCheckpoint(this.thePlayer.getSubjectID(), bytes.toByteArray());
+    }
+    
+    /**
+     * Restore the state saved by createCheckpoint().
+     * @param checkpoint the checkpoint.
+     * @return true if it was taken at the end of a block.
+     * @throws IOException if it cannot be decoded.
+     */
+    private boolean restoreCheckpoint(SessionCheckpoint checkpoint) throws IOException {
+        DataInputStream in = checkpoint.openState();
+        boolean betweenBlocks = in.readBoolean();
+        this.thePlayer.setNumCorrect(in.readInt());
+        this.thePlayer.setNumRounds(in.readInt());
+        this.numRoundsIntoBlock = in.readInt();
+        this.FforTrue = in.readBoolean();
+        this.lastBlock = in.readInt();
+        this.initializeColors();
+        ArrayList<ColorPair> allPairs = new ArrayList<ColorPair>(this.colorPairs);
+        ColorPair selectedPair = findColorPair(allPairs, in.readUTF());
+        this.colorPairs.clear();
+        for (int i = in.readByte(); i > 0; i--) {
+            this.colorPairs.add(findColorPair(allPairs, in.readUTF()));
+        }
+        dotsColorOne = selectedPair.getColorOne();
+        dotsColorTwo = selectedPair.getColorTwo();
+        colorOne = selectedPair.getColorOneName();
+        colorTwo = selectedPair.getColorTwoName();
+        this.setMaskColor(in.readUTF());
+        this.randomGenerator.setState(in.readLong());
+        this.dpg.readState(in);
+        return betweenBlocks;
+    }
+    
+    private static ColorPair findColorPair(ArrayList<ColorPair> colorPairs, String colorOneName) 
+            throws IOException {
+        for (ColorPair colorPair : colorPairs) {
+            if (colorPair.getColorOneName().equals(colorOneName)) {
+                return colorPair;
+            }
+        }
+        throw new IOException("Unknown color pair " + colorOneName);
     }
     
     /** 
@@ -325,7 +490,7 @@ public class DotsGameController implements GameController {
             theView.setGameScreen();
             theView.getPractice().setVisible(false);
             state = CurrentState.GAMEPLAY;
-            gameState = GameState.CHANGING_BLOCKS;
+            this.trialState.enter(GameState.CHANGING_BLOCKS);
             if (isPractice == CurrentState.PRACTICE) {
                 this.resetPlayer();
             }
@@ -338,7 +503,7 @@ public class DotsGameController implements GameController {
     private void resetPlayer() {
         String subjectID = thePlayer.getSubjectID();
         Player.Gender subjectGender = thePlayer.getSubjectGender();
-        SimpleIntegerProperty subjectAge = new SimpleIntegerProperty(thePlayer.getSubjectAge());
+        int subjectAge = thePlayer.getSubjectAge();
         thePlayer = new Player(subjectID, subjectGender, subjectAge);
     }
     
@@ -348,15 +513,12 @@ public class DotsGameController implements GameController {
      */
     public void setGameHandlers() {
         this.theScene = theView.getScene();
+        this.inputTimestamper.install(theView.getPrimaryStage());
         this.theScene.setOnKeyPressed(new EventHandler<KeyEvent>() {
             @Override
             public void handle(KeyEvent event) {
-                if ((event.getCode() == KeyCode.F 
-                        || event.getCode() == KeyCode.J) 
-                        && !feedback_given
-                        && (gameState == GameState.WAITING_FOR_RESPONSE 
-                        || gameState == GameState.MASK 
-                        || gameState == GameState.DISPLAYING_DOTS)) {
+                if (event.getCode() == KeyCode.F 
+                        || event.getCode() == KeyCode.J) {
                     gameController.handlePressForJ(event);
                 }
             }
@@ -365,10 +527,9 @@ public class DotsGameController implements GameController {
             @Override
             public void handle(KeyEvent key) {
                 if (key.getCode() == KeyCode.SPACE
-                        && gameState == GameState.PRESS_SPACE_TO_CONTINUE) {
+                        && trialState.getGameState() == GameState.PRESS_SPACE_TO_CONTINUE) {
                     theView.getPressSpaceText().setText("");
                     setOptions();
-                    gameState = GameState.DISPLAYING_DOTS;
                 }
             }
         });
@@ -377,33 +538,73 @@ public class DotsGameController implements GameController {
     /**
      * Actions to be executed on the pressing of the F or J key.
      * Update the models/data, prepare the next round, and export data to CSV.
+     * Ignored unless it is the first response to a trial that is being shown.
      * @param event
      */
     private void handlePressForJ(KeyEvent event) {
-        feedback_given = true;
+        long keyTime = this.inputTimestamper.getTimestamp(event);
+        GameState respondedIn = this.trialState.respond();
+        if (respondedIn == null) {
+            return;
+        }
+        this.responseKeyTime = keyTime;
         this.responseAndUpdate(event);
-        if (gameState == GameState.WAITING_FOR_RESPONSE) {
+        if (respondedIn == GameState.WAITING_FOR_RESPONSE) {
             this.prepareNextRound(); 
-        } else if (gameState == GameState.DISPLAYING_DOTS) {
+        } else if (respondedIn == GameState.DISPLAYING_DOTS) {
             this.clearRound();
-        } else if (gameState == GameState.MASK) {
+        } else if (respondedIn == GameState.MASK) {
+            TrialTimer.cancel(this.maskEnd);
+            FramePresenter.end(this.maskPhase);
             theView.getMask().setVisible(false);
             showPressSpaceToContinue();
         }
-        this.checkIfBlockDone();
+        boolean blockDone = this.checkIfBlockDone();
+        this.exportDataToCSV(blockDone);
         this.checkIfDone();
-        this.exportDataToCSV();
+        this.prepareNextStimulusWhenIdle();
+    }
+    
+    /**
+     * Once the dots and the mask are off the screen, draw the next trial's dots
+     * while the subject is told to press space. Not done at the end of a block,
+     * where the next pair depends on the next block.
+     */
+    private void prepareNextStimulusWhenIdle() {
+        this.framePresenter.whenIdle(() -> {
+            if (this.trialState.getGameState() == GameState.PRESS_SPACE_TO_CONTINUE) {
+                this.prepareNextStimulus();
+            }
+        });
     }
     
     /** 
-     * Export data to CSV file.
+     * Export data to CSV file once the dots and the mask of the trial 
+     * are off the screen, so that their offsets are known. The trial is
+     * queued and written in the background, followed by a checkpoint of
+     * the session as it is now.
+     * @param lastOfBlock true if the trial was the last of its block.
      */
-    private void exportDataToCSV() {
+    private void exportDataToCSV(boolean lastOfBlock) {
         if (state == CurrentState.GAMEPLAY) {
-            dataWriter.writeToCSV();    
+            SessionCheckpoint checkpoint = this.createCheckpoint(lastOfBlock);
+            this.framePresenter.whenIdle(() -> {
+                dataWriter.writeToCSV(lastOfBlock);
+                dataWriter.writeCheckpoint(checkpoint);
+            });
         }
     }
     
+    /**
+     * Export the trial still waiting for its stimuli to leave the screen,
+     * write the trials still queued, flush the results to disk and quit.
+     */
+    public void exitGame() {
+        this.framePresenter.finish();
+        this.dataWriter.close();
+        System.exit(0);
+    }
+    
     /**
      * Update models and view appropriately according to correctness
      * of subject's response.  
@@ -418,7 +619,7 @@ public class DotsGameController implements GameController {
         }
         DotsPair dp = this.currentDotsPair;
         this.setYesCorrect(GameLogic.checkWhichSideCorrect(dp, dpg.getBlockMode()));
-        boolean correct = GameLogic.checkAnswerCorrect(e, this.yesCorrect, this.FforTrue);
+        boolean correct = GameLogic.checkAnswerCorrect(e.getCode() == KeyCode.F, this.yesCorrect, this.FforTrue);
         this.updatePlayer(correct);   
         this.feedbackSound(correct);
         this.dataWriter.grabData(this);
@@ -443,20 +644,11 @@ public class DotsGameController implements GameController {
     
     /** If user inputs correct answer play positive feedback sound,
      * if not then play negative feedback sound.
-     * @param feedbackSoundFileUrl the File Url of the Sound to be played.
      * @param correct whether the subject answered correctly or not.
      */
     private void feedbackSound(boolean correct) {
-        URL feedbackSoundFileUrl;
-        if (correct) {
-            feedbackSoundFileUrl = 
-                    getClass().getResource("/res/sounds/Ping.aiff");
-        } else {
-            feedbackSoundFileUrl = 
-                    getClass().getResource("/res/sounds/Basso.aiff");
-        }
         if (this.dpg.getNumSections() >= SECTION_TO_START_FEEDBACK) {
-            new AudioClip(feedbackSoundFileUrl.toString()).play();
+            this.soundCache.play(correct ? "Ping.aiff" : "Basso.aiff");
         }
     }
     
@@ -478,32 +670,23 @@ public class DotsGameController implements GameController {
      * Prepare the first round by making a load bar to 
      * let the subject prepare for the first question.
      * 
-     * Also sets up the canvases on which the dots will be painted.
+     * Also sets up the canvases on which the dots will be painted
+     * and starts generating the first pairs while the subject gets ready.
      */
     public void prepareFirstRound() {
-        Task<Void> sleeper = new Task<Void>() {   
-            @Override
-            protected Void call() throws Exception {
-                for (int i = 0; i < GET_READY_TIME; i++) {
-                    this.updateProgress(i, GET_READY_TIME); 
-                    Thread.sleep(1);
-                }
-                return null;
-            }
-        };
-        theView.getGetReadyBar().progressProperty().bind(sleeper.progressProperty());
-        sleeper.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
-            @Override
-            public void handle(WorkerStateEvent e) {
-                gameState = GameState.DISPLAYING_DOTS;
-                graphicsContextCanvas = theView.getDotsCanvas().getGraphicsContext2D();
-                setOptions();
-                responseTimeMetric = System.nanoTime();
-                theView.getGetReadyBox().setVisible(false);
-            }
+        dpg.prepareUpcomingPairs();
+        this.framePresenter.whenIdle(this::prepareNextStimulus);
+        long start = TrialTimer.now();
+        theView.getGetReadyBar().progressProperty().unbind();
+        Timeline getReadyBar = new Timeline(
+                new KeyFrame(Duration.ZERO, new KeyValue(theView.getGetReadyBar().progressProperty(), 0)),
+                new KeyFrame(Duration.millis(GET_READY_TIME), 
+                        new KeyValue(theView.getGetReadyBar().progressProperty(), 1)));
+        getReadyBar.play();
+        this.trialTimer.schedule(start, GET_READY_TIME, () -> {
+            setOptions();
+            theView.getGetReadyBox().setVisible(false);
         });
-        Thread sleeperThread = new Thread(sleeper);
-        sleeperThread.start();
     }
     
     /**
@@ -515,16 +698,34 @@ public class DotsGameController implements GameController {
     
     /**
      * Checks if the current block should be completed based on number of rounds.
+     * @return true if the block was completed.
      */
-    private void checkIfBlockDone() {
+    private boolean checkIfBlockDone() {
         this.lastBlock = this.dpg.getBlockMode();
         if (this.numRoundsIntoBlock >= NUM_QUESTIONS_PER_BLOCK) {
             this.numRoundsIntoBlock = 0;
+            this.applyReloadedConfig();
             this.dpg.changeBlock();
             this.updateDotColors();
             this.changeMaskColor();
             theView.setBlockCompleteScreen(dpg.getBlockMode(), colorOne, colorTwo);
-            gameState = GameState.CHANGING_BLOCKS;
+            this.trialState.enter(GameState.CHANGING_BLOCKS);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * If the local config file changed since the last block, switch to the new
+     * configuration. Called only between blocks so a block runs with one configuration.
+     */
+    private void applyReloadedConfig() {
+        GameConfig reloaded = this.configWatcher.takeReloadedConfig();
+        if (reloaded != null) {
+            this.config = reloaded;
+            this.dpg.setConfig(reloaded);
+            this.updateRenderedAreaControl();
+            logger.log(Level.INFO, "Applied reloaded configuration.");
         }
     }
     
@@ -558,12 +759,18 @@ public class DotsGameController implements GameController {
      * then change the scene to the finish screen.
      */
     private void finishGame() {
+        this.trialState.enter(GameState.CHANGING_BLOCKS);
+        String subjectID = thePlayer.getSubjectID();
+        this.framePresenter.whenIdle(() -> {
+            dataWriter.deleteCheckpoint(subjectID);
+            dataWriter.flush();
+        });
         theView.setFinishScreen(thePlayer.getNumCorrect());
         theView.getScene().setOnKeyPressed(new EventHandler<KeyEvent>() {
             @Override
             public void handle(KeyEvent event) {
                 if (event.getCode() == KeyCode.ESCAPE) {
-                    System.exit(0);
+                    exitGame();
                 }
             }
         });
@@ -577,6 +784,7 @@ public class DotsGameController implements GameController {
         theView.setPracticeCompleteScreen(dpg.getBlockMode(), colorOne, colorTwo);
         theView.getScene().setOnKeyPressed(null);
         state = CurrentState.PRACTICE_FINISHED;
+        this.trialState.enter(GameState.CHANGING_BLOCKS);
         this.dpg.clearRatios();
     }
     
@@ -584,11 +792,21 @@ public class DotsGameController implements GameController {
      * Clears the options.
      */
     public void clearRound() {
-        theView.getDotsCanvas().setOpacity(0);
-        graphicsContextCanvas.setFill(CANVAS_COLOR);
-        graphicsContextCanvas.fillRect(0, 0, theView.getDotsCanvas().getWidth(),theView.getDotsCanvas().getHeight());
-        
-        this.showMask();
+        this.clearRound(this.trialState.getTrial());
+    }
+    
+    /**
+     * Clears the options of a trial and shows the mask, if the trial is still showing the dots.
+     * @param trial number of the trial.
+     */
+    private void clearRound(int trial) {
+        if (!this.trialState.transition(trial, GameState.DISPLAYING_DOTS, GameState.MASK)) {
+            return;
+        }
+        TrialTimer.cancel(this.flashEnd);
+        FramePresenter.end(this.flashPhase);
+        theView.getDots().hide();
+        this.showMask(trial);
     }
 
     /**
@@ -625,42 +843,44 @@ public class DotsGameController implements GameController {
      * Show the mask for MASK_TIME milliseconds then either:
      *  1.) If user has not answered - show the question
      *  2.) If user has answered - tell user to press space to continue
+     * @param trial number of the trial.
      */
-    private void showMask() {
-        DotsGameController.gameState = GameState.MASK;
-        theView.getMask().setVisible(true);
-        Task<Void> sleeper = new Task<Void>() {
-            @Override
-            protected Void call() throws Exception {
-                int i = 0;
-                logger.info(gameState.toString());
-                while (i < MASK_TIME) {
-                    synchronized (lock) {
-                        if (gameState == GameState.MASK) {
-                            this.updateProgress(i, MASK_TIME); 
-                            Thread.sleep(1);
-                            i++;
-                        }
-                    }
-                }
-                return null;
+    private void showMask(int trial) {
+        if (this.config.isProceduralMask() && this.proceduralMask != null) {
+            Image nextMask = this.proceduralMask.takeNext();
+            if (nextMask != null) {
+                theView.getMask().setImage(nextMask);
             }
-        };
-        sleeper.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
-            @Override
-            public void handle(WorkerStateEvent e) {
-                DotsGameController.gameState = GameState.WAITING_FOR_RESPONSE; 
-                theView.getMask().setVisible(false); 
-                if (!feedback_given) {
-                    setTheQuestion();
-                } else {
-                    showPressSpaceToContinue();
-                }
-                
+        }
+        theView.getMask().setVisible(true);
+        if (this.config.isFrameLocked()) {
+            this.maskPhase = this.framePresenter.showForFrames(MASK_TIME, 
+                    FramePresenter.framesFor(MASK_TIME, this.config.getRefreshRate()), 
+                    () -> this.hideMask(trial));
+        } else {
+            this.maskPhase = this.framePresenter.show(MASK_TIME);
+            this.maskEnd = this.trialTimer.schedule(TrialTimer.now(), MASK_TIME, () -> this.hideMask(trial));
+        }
+    }
+    
+    /**
+     * Hide the mask, then show the question or, if the subject already answered,
+     * tell them to press space to continue. Does nothing if another trial has started.
+     * @param trial number of the trial the mask was shown for.
+     */
+    private void hideMask(int trial) {
+        if (this.trialState.getTrial() != trial) {
+            return;
+        }
+        FramePresenter.end(this.maskPhase);
+        theView.getMask().setVisible(false); 
+        if (this.trialState.transition(trial, GameState.MASK, GameState.WAITING_FOR_RESPONSE)) {
+            if (!this.trialState.hasResponded()) {
+                setTheQuestion();
+            } else {
+                showPressSpaceToContinue();
             }
-        });
-        Thread sleeperThread = new Thread(sleeper);
-        sleeperThread.start();
+        }
     }
     
     public void changeMaskColor() {
@@ -672,14 +892,35 @@ public class DotsGameController implements GameController {
                 "Brown", "Cyan");
         maskColorChoices.removeAll(Arrays.asList(colorOne, colorTwo));
         System.out.println(maskColorChoices.toString());
-        theView.changeMaskColor(maskColorChoices.get(randomGenerator.nextInt(maskColorChoices.size())));
+        this.setMaskColor(maskColorChoices.get(randomGenerator.nextInt(maskColorChoices.size())));
+    }
+    
+    private void setMaskColor(String maskColorName) {
+        this.maskColorName = maskColorName;
+        this.maskColor = Color.web(maskColorName);
+        theView.changeMaskColor(maskColorName);
+    }
+    
+    /**
+     * When mask.mode is procedural, start rendering the mask of the trial
+     * in the background so it is ready by the time the dots are hidden.
+     */
+    private void prepareMask() {
+        if (!this.config.isProceduralMask()) {
+            return;
+        }
+        if (this.proceduralMask == null) {
+            this.proceduralMask = new ProceduralMask(SetUp.DOTS_CANVAS_WIDTH, SetUp.DOTS_CANVAS_HEIGHT,
+                    this.config.getMinDiameter(), this.config.getMaxDiameter());
+        }
+        this.proceduralMask.prepare(this.maskColor, randomGenerator.nextLong());
     }
     
     /**
      * Clear the question and tell the user to press space to continue.
      */
     private void showPressSpaceToContinue() {
-        gameState = GameState.PRESS_SPACE_TO_CONTINUE;
+        this.trialState.enter(GameState.PRESS_SPACE_TO_CONTINUE);
         theView.getQuestion().setText("");
         theView.getPressSpaceText().setText("Press space to continue");
     }
@@ -688,96 +929,172 @@ public class DotsGameController implements GameController {
      * Set and show the next round's choices.
      */
     public void setOptions() {
-        this.prepareNextPair();
-        this.paintDots();
-        responseTimeMetric = System.nanoTime();
-        this.hideDots();
-        feedback_given = false;
+        this.maskPhase = null;
+        this.prepareNextStimulus();
+        this.currentDotsPair = this.nextDotsPair;
+        this.nextDotsPair = null;
+        this.prerenderTime = theView.getDots().getLastRenderTime();
+        int trial = this.trialState.startTrial();
+        this.showDots();
+        this.prepareMask();
+        responseTimeMetric = TrialTimer.now();
+        this.hideDots(responseTimeMetric, trial);
     }
     
     /**
-     * Prepare the next pair.
+     * Get the next pair and draw it into the back buffer of the dots, unless
+     * that has been done already.
      */
-    private void prepareNextPair() {
+    private void prepareNextStimulus() {
+        if (this.nextDotsPair != null) {
+            return;
+        }
         dpg.getNewModePair();
-        this.currentDotsPair = dpg.getDotsPair();
+        this.nextDotsPair = dpg.getDotsPair();
+        
+        GraphicsContext graphicsContext = theView.getDots().beginDrawing();
+        this.paintDotSet(this.nextDotsPair.getDotSetOne(), dotsColorOne, graphicsContext);
+        this.paintDotSet(this.nextDotsPair.getDotSetTwo(), dotsColorTwo, graphicsContext);
+        theView.getDots().finishDrawing();
+        logger.log(Level.FINE, "Prerendered the next dots in " 
+                + theView.getDots().getLastRenderTime() / 1000000.0 + " ms");
+        if (this.config.isDotAreaVerified()) {
+            this.verifyArea(this.nextDotsPair.getDotSetOne(), dotsColorOne, colorOne);
+            this.verifyArea(this.nextDotsPair.getDotSetTwo(), dotsColorTwo, colorTwo);
+        }
     }
     
     /**
-     * Show the choices.
+     * Log how far the rendered area of a dot set is from its computed area.
+     * @param dotSet the dot set just drawn.
+     * @param color color it was drawn in.
+     * @param colorName name of the color.
      */
-    private void paintDots() {
-        theView.getQuestion().setText("");
-        theView.getDotsCanvas().setOpacity(1.0);
-        
-        DotSet dotSetOne = this.currentDotsPair.getDotSetOne();
-        DotSet dotSetTwo = this.currentDotsPair.getDotSetTwo();
-        graphicsContextCanvas.setFill(dotsColorOne);
-        this.paintDotSet(dotSetOne, graphicsContextCanvas);
-        graphicsContextCanvas.setFill(dotsColorTwo);
-        this.paintDotSet(dotSetTwo, graphicsContextCanvas);
+    private void verifyArea(DotSet dotSet, Color color, String colorName) {
+        double rendered = theView.getDots().measureArea(color);
+        double error = (rendered - dotSet.getTotalArea()) / dotSet.getTotalArea();
+        logger.log(Math.abs(error) > AREA_TOLERANCE ? Level.WARNING : Level.INFO, 
+                colorName + " dots: rendered area " + rendered + ", computed area " 
+                + dotSet.getTotalArea() + " (" + error * 100 + "%)");
     }
     
     /**
-     * Hide the dot sets after some time (FLASH_TIME) has passed.
+     * Give the DotsPairGenerator the rendered area table of this display if
+     * rendered.area.control is on, measuring it the first time if it is not cached.
      */
-    private void hideDots() { 
-        Task<Void> sleeper = new Task<Void>() {
-            @Override
-            protected java.lang.Void call() throws Exception {
-                int i = 0;
-                 
-                while (i < FLASH_TIME) {
-                    synchronized (lock) {
-                        this.updateProgress(i, FLASH_TIME);
-                        Thread.sleep(1);
-                        i++;
-                        /** Quit and exit once F or J pressed */
-                        if (feedback_given == true) {
-                            return null;
-                        }
-                    }
-                }
-                
-                return null;
-            }    
-        };
-        sleeper.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
-            @Override
-            public void handle(WorkerStateEvent event) {
-                if (gameState == GameState.DISPLAYING_DOTS && feedback_given == false) {
-                    gameController.clearRound();    
-                }
+    private void updateRenderedAreaControl() {
+        if (!this.config.isRenderedAreaControl()) {
+            this.dpg.setRenderedAreaTable(null);
+            return;
+        }
+        if (this.renderedAreas == null) {
+            this.renderedAreas = RenderedAreaCalibration.load(this.largestDiameter(), 
+                    this.config.getOutputScale());
+        }
+        this.dpg.setRenderedAreaTable(this.renderedAreas);
+    }
+    
+    /**
+     * @return the largest diameter a dot may be generated with.
+     */
+    private int largestDiameter() {
+        return Math.max(this.config.getMaxDiameter(), 
+                this.config.getAverageDiameterArc() + this.config.getMaxDiameterVarianceArc());
+    }
+    
+    /**
+     * The pre-rasterized discs of a color, rasterized on first use.
+     * @param color the color.
+     * @return the atlas.
+     */
+    private DiscAtlas getDiscAtlas(Color color) {
+        DiscAtlas atlas = this.discAtlases.get(color);
+        if (atlas == null) {
+            atlas = new DiscAtlas(color, this.largestDiameter(), this.config.getOutputScale());
+            this.discAtlases.put(color, atlas);
+            if (this.config.isDotAreaVerified()) {
+                double error = atlas.verify(this.config.getMinDiameter());
+                logger.log(Math.abs(error) > AREA_TOLERANCE ? Level.WARNING : Level.INFO, 
+                        "Disc atlas " + color + ": largest area difference " + error * 100 + "%");
             }
-        });
-        new Thread(sleeper).start();
+        }
+        return atlas;
+    }
+    
+    /**
+     * Show the choices by swapping in the dots drawn beforehand.
+     */
+    private void showDots() {
+        theView.getQuestion().setText("");
+        theView.getDots().show();
+        logger.log(Level.FINE, "Swapped in the dots in " 
+                + theView.getDots().getLastSwapTime() / 1000000.0 + " ms");
+    }
+    
+    /**
+     * Hide the dot sets after some time (flash.time) has passed, counted in frames
+     * or in milliseconds depending on presentation.mode.
+     * Cancelled by clearRound() if F or J is pressed first.
+     * @param onset TrialTimer.now() when the dots were shown.
+     * @param trial number of the trial.
+     */
+    private void hideDots(long onset, int trial) { 
+        int flashTime = this.config.getFlashTime();
+        Runnable hide = () -> gameController.clearRound(trial);
+        if (this.config.isFrameLocked()) {
+            this.flashPhase = this.framePresenter.showForFrames(flashTime, 
+                    FramePresenter.framesFor(flashTime, this.config.getRefreshRate()), hide);
+        } else {
+            this.flashPhase = this.framePresenter.show(flashTime);
+            this.flashEnd = this.trialTimer.schedule(onset, flashTime, hide);
+        }
     }
 
     /**
-     * Paint the dots for a given dotset.
+     * Paint the dots for a given dotset, from the disc atlas of the color
+     * or as ovals depending on dot.rendering.
      * @param dotSet - the dotSet to be painted.
+     * @param color - color of the dots.
      * @param graphicsContext
      */
-    private void paintDotSet(DotSet dotSet, GraphicsContext graphicsContext) {
-        for (int i = 0; i < dotSet.getTotalNumDots(); i++) {
-            
-            int x = dotSet.getPositions().get(i).x;
-            int y = dotSet.getPositions().get(i).y;
-
-            graphicsContext.fillOval(x, y, 
-                    dotSet.getDiameters().get(i), 
-                    dotSet.getDiameters().get(i));
+    private void paintDotSet(DotSet dotSet, Color color, GraphicsContext graphicsContext) {
+        int numDots = dotSet.getTotalNumDots();
+        if (this.config.isDotAtlasOn()) {
+            DiscAtlas atlas = this.getDiscAtlas(color);
+            for (int i = 0; i < numDots; i++) {
+                atlas.paint(graphicsContext, dotSet.getX(i), dotSet.getY(i), dotSet.getDiameter(i));
+            }
+        } else {
+            graphicsContext.setFill(color);
+            for (int i = 0; i < numDots; i++) {
+                double diameter = dotSet.getDiameter(i);
+                graphicsContext.fillOval(dotSet.getX(i), dotSet.getY(i), diameter, diameter);
+            }
         }
     }
 
     /** 
      * Record the response time of the subject. 
      * responseTimeMetric should be set whenever the dots are shown.
+     * 
+     * The raw response time runs from when the dots were painted to when the 
+     * response is handled. The corrected response time is the time of the 
+     * KEY_PRESSED filter on the window minus the time of the pulse that first 
+     * rendered the dots; it is NaN if the press came before that pulse. JavaFX 
+     * gives neither the OS time of the key event nor the time the frame was 
+     * scanned out, so both ends are as seen by the JavaFX thread.
      */
     public void recordResponseTime() {
         long responseTime = System.nanoTime() - responseTimeMetric;
         thePlayer.setResponseTime(responseTime);
-        logger.info("Response time: " + responseTime / 1000000000.0);
+        double correctedResponseTime = Double.NaN;
+        if (this.flashPhase != null && this.flashPhase.getOnset() != 0 
+                && this.responseKeyTime >= this.flashPhase.getOnset()) {
+            correctedResponseTime = this.responseKeyTime - this.flashPhase.getOnset();
+        }
+        thePlayer.setCorrectedResponseTime(correctedResponseTime);
+        logger.info("Response time: " + responseTime / 1000000000.0
+                + " (corrected: " + correctedResponseTime / 1000000000.0 + ")");
     }
     
     public Player getThePlayer() {
@@ -791,11 +1108,37 @@ public class DotsGameController implements GameController {
     public DotsPair getCurrentDotsPair() {
         return currentDotsPair;
     }
+    
+    /**
+     * @return nanoseconds it took to rasterize the dots of the current trial.
+     */
+    public long getPrerenderTime() {
+        return this.prerenderTime;
+    }
+    
+    /**
+     * @return nanoseconds it took to swap the dots of the current trial onto the screen.
+     */
+    public long getSwapTime() {
+        return theView.getDots().getLastSwapTime();
+    }
+    
+    public FramePresenter.StimulusPhase getFlashPhase() {
+        return this.flashPhase;
+    }
+    
+    public FramePresenter.StimulusPhase getMaskPhase() {
+        return this.maskPhase;
+    }
 
     public void setCurrentDotsPair(DotsPair currentDotsPair) {
         this.currentDotsPair = currentDotsPair;
     }
 
+    public GameConfig getConfig() {
+        return this.config;
+    }
+    
     public DotsPairGeneratorInterface getDpg() {
         return dpg;
     }
@@ -0,0 +1,255 @@
+package controller;
+
+import java.util.ArrayList;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Times stimuli by JavaFX pulses instead of by the clock.
+ *
+ * An AnimationTimer runs for the whole session, so there is a pulse every
+ * frame. Each stimulus (the dots, the mask) is a StimulusPhase. Its onset is
+ * the timestamp of the first pulse that renders it and its offset is the
+ * timestamp of the first pulse that renders it hidden, so the recorded times
+ * are when the frames went to the screen rather than when the code asked for
+ * them.
+ *
+ * A phase may be frame-locked: it is then hidden on the pulse after it has
+ * been rendered for its number of frames. Otherwise something else (the
+ * TrialTimer or a key press) hides it and calls end().
+ *
+ * Must only be used from the JavaFX application thread.
+ *
+ * Classes Related To:
+ *  -DotsGameController.java
+ *      -Shows the dots and the mask as phases.
+ *  -DataWriter.java
+ *      -Exports the intended and measured durations of each phase.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class FramePresenter {
+
+    /**
+     * One stimulus being shown.
+     */
+    public static class StimulusPhase {
+
+        /** Duration asked for in milliseconds. */
+        private final int intendedMillis;
+
+        /** Number of frames to show the stimulus for. 0 if not frame-locked. */
+        private final int intendedFrames;
+
+        /** Action hiding the stimulus once intendedFrames have been rendered. */
+        private final Runnable onEnd;
+
+        /** System.nanoTime() of the pulse rendering the stimulus first, 0 until rendered. */
+        private long onset;
+
+        /** System.nanoTime() of the pulse rendering the stimulus hidden, 0 until hidden. */
+        private long offset;
+
+        /** Number of frames the stimulus has been rendered in. */
+        private int framesShown;
+
+        /** Whether the stimulus has been hidden, by onEnd or by end(). */
+        private boolean ended;
+
+        StimulusPhase(int intendedMillis, int intendedFrames, Runnable onEnd) {
+            this.intendedMillis = intendedMillis;
+            this.intendedFrames = intendedFrames;
+            this.onEnd = onEnd;
+        }
+
+        /**
+         * Handle a pulse.
+         * @param now timestamp of the pulse.
+         * @return true if the phase is finished.
+         */
+        boolean pulse(long now) {
+            if (this.onset == 0) {
+                this.onset = now;
+            }
+            if (this.ended) {
+                this.offset = now;
+                return true;
+            }
+            if (this.intendedFrames > 0 && this.framesShown >= this.intendedFrames) {
+                this.ended = true;
+                this.offset = now;
+                this.onEnd.run();
+                return true;
+            }
+            this.framesShown++;
+            return false;
+        }
+
+        public int getIntendedMillis() {
+            return this.intendedMillis;
+        }
+
+        public int getIntendedFrames() {
+            return this.intendedFrames;
+        }
+
+        public long getOnset() {
+            return this.onset;
+        }
+
+        public long getOffset() {
+            return this.offset;
+        }
+
+        public int getFramesShown() {
+            return this.framesShown;
+        }
+
+        /**
+         * @return true once the offset has been recorded.
+         */
+        public boolean isFinished() {
+            return this.offset != 0;
+        }
+
+        /**
+         * @return measured on-screen duration in nanoseconds, 0 if not finished.
+         */
+        public long getMeasuredDuration() {
+            return this.isFinished() ? this.offset - this.onset : 0;
+        }
+    }
+
+    /** Phases that are not finished yet. */
+    private final ArrayList<StimulusPhase> activePhases;
+
+    /** Actions waiting for every phase to finish. */
+    private final ArrayList<Runnable> whenIdle;
+
+    /** Calls pulse() on every JavaFX pulse. */
+    private final AnimationTimer pulseTimer;
+
+    /**
+     * Constructor for FramePresenter. Call start() to begin receiving pulses.
+     */
+    public FramePresenter() {
+        this.activePhases = new ArrayList<StimulusPhase>();
+        this.whenIdle = new ArrayList<Runnable>();
+        this.pulseTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulse(now);
+            }
+        };
+    }
+
+    public void start() {
+        this.pulseTimer.start();
+    }
+
+    public void stop() {
+        this.pulseTimer.stop();
+    }
+
+    /**
+     * Number of whole frames closest to a duration, at least 1.
+     * @param millis duration in milliseconds.
+     * @param refreshRate refresh rate of the display in Hz.
+     * @return number of frames.
+     */
+    public static int framesFor(int millis, double refreshRate) {
+        return Math.max(1, (int) Math.round(millis * refreshRate / 1000.0));
+    }
+
+    /**
+     * Start a frame-locked phase for a stimulus that has just been made visible.
+     * @param intendedMillis duration asked for in milliseconds.
+     * @param frames number of frames to show the stimulus for.
+     * @param onEnd action hiding the stimulus, run on the pulse after the last frame.
+     * @return the phase.
+     */
+    public StimulusPhase showForFrames(int intendedMillis, int frames, Runnable onEnd) {
+        return this.add(new StimulusPhase(intendedMillis, frames, onEnd));
+    }
+
+    /**
+     * Start a phase for a stimulus that has just been made visible and that
+     * will be hidden by calling end().
+     * @param intendedMillis duration asked for in milliseconds.
+     * @return the phase.
+     */
+    public StimulusPhase show(int intendedMillis) {
+        return this.add(new StimulusPhase(intendedMillis, 0, null));
+    }
+
+    private StimulusPhase add(StimulusPhase phase) {
+        this.activePhases.add(phase);
+        return phase;
+    }
+
+    /**
+     * Mark a stimulus as just hidden. Its offset is recorded on the next pulse.
+     * Does nothing if the phase is null or already ended.
+     * @param phase the phase.
+     */
+    public static void end(StimulusPhase phase) {
+        if (phase != null) {
+            phase.ended = true;
+        }
+    }
+
+    /**
+     * Run an action once every phase is finished, or on the next pulse if none are active.
+     * @param action the action.
+     */
+    public void whenIdle(Runnable action) {
+        this.whenIdle.add(action);
+    }
+
+    /**
+     * Finish every phase now and run the waiting actions, for when the game
+     * exits and no more pulses will come. Phases still on screen get now as
+     * their offset; phases that were never rendered stay unfinished. The
+     * actions hiding frame-locked stimuli are not run.
+     */
+    public void finish() {
+        this.pulseTimer.stop();
+        long now = System.nanoTime();
+        for (StimulusPhase phase : this.activePhases) {
+            phase.ended = true;
+            if (phase.onset != 0) {
+                phase.offset = now;
+            }
+        }
+        this.activePhases.clear();
+        while (!this.whenIdle.isEmpty()) {
+            ArrayList<Runnable> actions = new ArrayList<Runnable>(this.whenIdle);
+            this.whenIdle.clear();
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * Handle a pulse. Phases started during this pulse (for example the mask,
+     * started when the dots end) are handled in the same pulse.
+     * @param now timestamp of the pulse, in System.nanoTime() time.
+     */
+    private void pulse(long now) {
+        for (int i = 0; i < this.activePhases.size(); i++) {
+            if (this.activePhases.get(i).pulse(now)) {
+                this.activePhases.remove(i);
+                i--;
+            }
+        }
+        if (this.activePhases.isEmpty() && !this.whenIdle.isEmpty()) {
+            ArrayList<Runnable> actions = new ArrayList<Runnable>(this.whenIdle);
+            this.whenIdle.clear();
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+}
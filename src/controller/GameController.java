@@ -17,6 +17,9 @@ public interface GameController {
     
     /** Number of practice rounds. */
     public static final int NUM_PRACTICE_ROUNDS = 4;
+    
+    /** Number of sections. Each section contains all four blocks. */
+    public static final int NUM_SECTIONS = 6;
     /** Number of rounds for each difficulty setting. */
     
     public static final int ROUNDS_PER_DIFFICULTY = NUM_ROUNDS / 3;
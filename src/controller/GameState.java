@@ -0,0 +1,28 @@
+package controller;
+
+/**
+ * Enum describing the current point in time of a trial.
+ * 
+ * Classes Related To:
+ *  -TrialStateMachine.java
+ *      -Holds the game state of the current trial and moves it between these states.
+ * 
+ * @author Tony Jiang
+ * 
+ */
+public enum GameState {
+    /** User is being shown the dots. */
+    DISPLAYING_DOTS,
+
+    /** Displaying mask */
+    MASK,
+    
+    /** Question is being shown. Waiting for response from user. Recording reponse time. */
+    WAITING_FOR_RESPONSE,
+    
+    /** Waiting for the player to press space to continue */
+    PRESS_SPACE_TO_CONTINUE,
+    
+    /** Between blocks. (Not active gameplay) */
+    CHANGING_BLOCKS,
+}
@@ -0,0 +1,80 @@
+package controller;
+
+import javafx.event.EventHandler;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.Window;
+
+/**
+ * Timestamps key presses as early as JavaFX allows.
+ *
+ * KeyEvents carry no timestamp, so one is taken with System.nanoTime() in
+ * a KEY_PRESSED filter on the window, which runs before any filter or
+ * handler on the scene or its nodes. Handlers later in the dispatch chain
+ * ask for the timestamp of the event they are handling instead of reading
+ * the clock themselves, so only the dispatch from the window down to them
+ * is left out of the response time.
+ *
+ * JavaFX gives neither the time the OS received the key event nor the time
+ * a frame was scanned out to the display. The timestamp therefore still
+ * includes the delay from the OS to the window filter, including any time
+ * the event waited behind other work on the JavaFX thread. Likewise the
+ * corrected response time (this timestamp minus the pulse that first
+ * rendered the dots) still includes the gap between that pulse and the
+ * frame reaching the screen.
+ *
+ * Recording a press only stores two fields, so it adds nothing measurable
+ * to dispatching.
+ *
+ * Classes Related To:
+ *  -DotsGameController.java
+ *      -Measures the response time from the onset of the dots to the timestamp of the key press.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class InputTimestamper {
+
+    /** System.nanoTime() of the last key press, 0 if none yet. */
+    private long lastKeyPressTime;
+
+    /** Key of the last key press. */
+    private KeyCode lastKeyCode;
+
+    /** The window the filter is installed on, null if none. */
+    private Window window;
+
+    /** Records every key press reaching the window. */
+    private final EventHandler<KeyEvent> filter = event -> {
+        this.lastKeyPressTime = System.nanoTime();
+        this.lastKeyCode = event.getCode();
+    };
+
+    /**
+     * Timestamp key presses reaching a window. Moves the filter if it was on another window.
+     * @param window the window.
+     */
+    public void install(Window window) {
+        if (this.window == window) {
+            return;
+        }
+        if (this.window != null) {
+            this.window.removeEventFilter(KeyEvent.KEY_PRESSED, this.filter);
+        }
+        this.window = window;
+        window.addEventFilter(KeyEvent.KEY_PRESSED, this.filter);
+    }
+
+    /**
+     * The time a key press was captured.
+     * @param event the key press being handled.
+     * @return System.nanoTime() when the window received the press, or now if the
+     *      press did not pass through the filter.
+     */
+    public long getTimestamp(KeyEvent event) {
+        if (this.lastKeyPressTime != 0 && event.getCode() == this.lastKeyCode) {
+            return this.lastKeyPressTime;
+        }
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,396 @@
+package controller;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import config.ResultsCommit;
+
+/**
+ * Write-behind queue of trial records. The game hands each record over
+ * without waiting; a single background thread encodes the records with one
+ * reused TrialEncoder and appends them to the subject's results file, and
+ * to the subject's TrialJournal if there is one.
+ *
+ * The queue holds CAPACITY records. If the writer falls that far behind,
+ * further records wait in an overflow list on the game's side and are moved
+ * into the queue at the next submit or flush, so nothing is dropped and the
+ * game never blocks. How full the queue got, how often it overflowed and how
+ * long records waited are kept as backpressure metrics and logged by the
+ * writer thread when the queue is flushed or closed.
+ *
+ * Session checkpoints go through the queue too, and the results file is
+ * committed before each one is written, whatever results.commit says, so a
+ * session resumed after the game crashes never skips a trial missing from
+ * the results. (The results are not forced to disk for a checkpoint, so
+ * this does not hold if the computer itself stops.)
+ *
+ * submit(), submitCheckpoint(), deleteCheckpoint() and flush() never block.
+ * close() waits for every record to be written and the file forced to disk,
+ * for when the game exits.
+ *
+ * Classes Related To:
+ *  -DataWriter.java
+ *      -Submits a record for every trial.
+ *  -ResultsWriter.java
+ *      -The results file the records are appended to, owned by the background thread.
+ *  -SessionCheckpoint.java
+ *      -Written in order with the records.
+ *  -TrialJournal.java
+ *      -The journal the records are appended to, owned by the background thread.
+ *  -TrialEncoder.java
+ *      -Encodes the records as lines of the CSV.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class ResultsQueue {
+
+    /** Logger */
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Number of records the queue holds before overflowing. */
+    static final int CAPACITY = 256;
+
+    /** Longest close() waits for the writer, in seconds. */
+    static final int CLOSE_TIMEOUT = 10;
+
+    /**
+     * A request to commit everything before it and force the file to disk.
+     * The latch is released once done; stop ends the writer thread after.
+     */
+    private static final class Flush {
+        final CountDownLatch done = new CountDownLatch(1);
+        final boolean stop;
+
+        Flush(boolean stop) {
+            this.stop = stop;
+        }
+    }
+
+    /** A record and when it was submitted. */
+    private static final class Entry {
+        final TrialRecord record;
+        final long submitted;
+
+        Entry(TrialRecord record, long submitted) {
+            this.record = record;
+            this.submitted = submitted;
+        }
+    }
+
+    /** A checkpoint to write for a subject, or null to delete the subject's checkpoint. */
+    private static final class Checkpoint {
+        final String subjectId;
+        final SessionCheckpoint checkpoint;
+
+        Checkpoint(String subjectId, SessionCheckpoint checkpoint) {
+            this.subjectId = subjectId;
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    /** Records, checkpoints and flush requests, in order. Entry, Checkpoint or Flush. */
+    private final ArrayBlockingQueue<Object> queue;
+
+    /** Items that did not fit in the queue, oldest first. Only used by the submitting thread. */
+    private final ArrayDeque<Object> overflow;
+
+    /** When to commit to the results file. */
+    private final ResultsCommit commit;
+    private final int commitInterval;
+
+    /** Whether the records are also appended to the subject's journal. */
+    private final boolean journalOn;
+
+    /** Results file of the subject of the last record written, and the subject. Only used by the writer thread. */
+    private ResultsWriter results;
+    private String resultsSubjectId;
+
+    /** Journal of that subject, null if journalOn is false. Only used by the writer thread. */
+    private TrialJournal journal;
+
+    /** Encodes the records. Only used by the writer thread. */
+    private final TrialEncoder encoder = new TrialEncoder();
+
+    /** Backpressure metrics. */
+    private volatile long submitted;
+    private volatile long written;
+    private volatile long overflowed;
+    private volatile int maxDepth;
+    private volatile long maxLatency;
+    private volatile long totalWriteTime;
+
+    /**
+     * Constructor. Starts the writer thread.
+     * @param commit when to commit to the results file.
+     * @param commitInterval milliseconds between commits for ResultsCommit.INTERVAL.
+     * @param journalOn true to also append the records to the subject's journal.
+     */
+    public ResultsQueue(ResultsCommit commit, int commitInterval, boolean journalOn) {
+        this.commit = commit;
+        this.commitInterval = commitInterval;
+        this.journalOn = journalOn;
+        this.queue = new ArrayBlockingQueue<Object>(CAPACITY);
+        this.overflow = new ArrayDeque<Object>();
+        Thread writerThread = new Thread(this::run, "Results writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Hand a record to the writer thread. Never blocks.
+     * @param record the record.
+     */
+    public void submit(TrialRecord record) {
+        this.submitted++;
+        this.enqueue(new Entry(record, System.nanoTime()));
+    }
+
+    /**
+     * Hand a checkpoint to the writer thread, to replace the subject's last one
+     * once the records submitted before it are written. Never blocks.
+     * @param checkpoint the checkpoint.
+     */
+    public void submitCheckpoint(SessionCheckpoint checkpoint) {
+        this.enqueue(new Checkpoint(checkpoint.getSubjectId(), checkpoint));
+    }
+
+    /**
+     * Have the writer thread delete a subject's checkpoint, once the session is over.
+     * Never blocks.
+     * @param subjectId ID of the subject.
+     */
+    public void deleteCheckpoint(String subjectId) {
+        this.enqueue(new Checkpoint(subjectId, null));
+    }
+
+    /**
+     * Ask the writer thread to commit everything submitted so far and force it to disk.
+     * Never blocks.
+     */
+    public void flush() {
+        this.enqueue(new Flush(false));
+    }
+
+    /**
+     * Write everything submitted so far, force it to disk and stop the writer thread.
+     * Waits at most CLOSE_TIMEOUT seconds.
+     */
+    public void close() {
+        Flush close = new Flush(true);
+        try {
+            this.overflow.add(close);
+            while (!this.overflow.isEmpty()) {
+                this.queue.put(this.overflow.poll());
+            }
+            if (!close.done.await(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                System.err.println("Results writer did not finish within " + CLOSE_TIMEOUT + " s.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Move overflowed items into the queue while there is room, then add the item.
+     */
+    private void enqueue(Object item) {
+        while (!this.overflow.isEmpty() && this.queue.offer(this.overflow.peek())) {
+            this.overflow.poll();
+        }
+        if (!this.overflow.isEmpty() || !this.queue.offer(item)) {
+            this.overflow.add(item);
+            this.overflowed++;
+        }
+        int depth = this.queue.size() + this.overflow.size();
+        if (depth > this.maxDepth) {
+            this.maxDepth = depth;
+        }
+    }
+
+    /**
+     * Body of the writer thread.
+     */
+    private void run() {
+        while (true) {
+            Object item;
+            try {
+                item = this.queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (item instanceof Entry) {
+                this.write((Entry) item);
+            } else if (item instanceof Checkpoint) {
+                this.write((Checkpoint) item);
+            } else {
+                Flush flush = (Flush) item;
+                this.flushResults(flush.stop);
+                logger.log(Level.INFO, this.getMetrics());
+                flush.done.countDown();
+                if (flush.stop) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Append a record to the journal and results file of its subject.
+     */
+    private void write(Entry entry) {
+        long start = System.nanoTime();
+        TrialRecord record = entry.record;
+        try {
+            if (this.results == null || !this.resultsSubjectId.equals(record.getSubjectId())) {
+                this.flushResults(true);
+                this.results = new ResultsWriter(DataWriter.resultsFile(record.getSubjectId()),
+                        DataWriter.generateColumnNames(), this.commit, this.commitInterval);
+                this.resultsSubjectId = record.getSubjectId();
+                logger.info(this.results.getFile().toAbsolutePath().toString());
+                if (this.journalOn) {
+                    this.openJournal(record.getSubjectId());
+                }
+            }
+            if (this.journal != null) {
+                this.appendToJournal(record);
+            }
+            int length = this.encoder.encode(record);
+            this.results.appendTrial(this.encoder.getBuffer(), length, record.isLastOfBlock());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        long end = System.nanoTime();
+        this.totalWriteTime += end - start;
+        if (end - entry.submitted > this.maxLatency) {
+            this.maxLatency = end - entry.submitted;
+        }
+        this.written++;
+    }
+
+    /**
+     * Open the journal of a subject, unless their ID is too long to journal.
+     */
+    private void openJournal(String subjectId) throws IOException {
+        if (!TrialJournal.canHoldSubjectId(subjectId)) {
+            logger.warning("Subject ID " + subjectId + " is longer than " + TrialJournal.SUBJECT_ID_CHARS
+                    + " chars, so the trials of this subject are not journaled.");
+            return;
+        }
+        this.journal = new TrialJournal(DataWriter.journalFile(subjectId));
+    }
+
+    /**
+     * Append a record to the open journal. If it cannot be journaled whole, the
+     * journal is closed and the subject's journal ends at the trial before.
+     */
+    private void appendToJournal(TrialRecord record) {
+        try {
+            if (TrialJournal.canHold(record)) {
+                this.journal.append(record);
+                return;
+            }
+            logger.warning("Color names " + record.getColorOne() + " and " + record.getColorTwo()
+                    + " do not fit in " + this.journal.getFile() + ", so it ends with its "
+                    + this.journal.getNumRecords() + " records.");
+            this.journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.journal = null;
+    }
+
+    /**
+     * Write or delete a subject's checkpoint, after committing the trials before it.
+     */
+    private void write(Checkpoint checkpoint) {
+        try {
+            if (this.results != null) {
+                this.results.commit();
+            }
+            if (checkpoint.checkpoint == null) {
+                SessionCheckpoint.delete(DataWriter.checkpointFile(checkpoint.subjectId));
+            } else {
+                checkpoint.checkpoint.write(DataWriter.checkpointFile(checkpoint.subjectId));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Commit the results file and force it and the journal to disk, closing them if asked.
+     */
+    private void flushResults(boolean close) {
+        if (this.journal != null) {
+            try {
+                if (close) {
+                    this.journal.close();
+                    this.journal = null;
+                } else {
+                    this.journal.flush();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (this.results == null) {
+            return;
+        }
+        try {
+            if (close) {
+                this.results.close();
+                this.results = null;
+            } else {
+                this.results.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the backpressure metrics as one line of text.
+     */
+    public String getMetrics() {
+        long written = this.written;
+        return "Results queue: " + this.submitted + " submitted, " + written + " written, "
+                + this.overflowed + " overflowed, max depth " + this.maxDepth + "/" + CAPACITY
+                + ", max latency " + this.maxLatency / 1000000.0 + " ms, mean write "
+                + (written == 0 ? 0 : this.totalWriteTime / written / 1000000.0) + " ms";
+    }
+
+    public long getSubmitted() {
+        return this.submitted;
+    }
+
+    public long getWritten() {
+        return this.written;
+    }
+
+    /**
+     * @return number of items that did not fit in the queue when submitted.
+     */
+    public long getOverflowed() {
+        return this.overflowed;
+    }
+
+    /**
+     * @return most items waiting at once, queue and overflow together.
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * @return longest time from submitting a record to it being written, in nanoseconds.
+     */
+    public long getMaxLatency() {
+        return this.maxLatency;
+    }
+}
@@ -0,0 +1,165 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import config.ResultsCommit;
+
+/**
+ * The results file of one subject, kept open for the whole session.
+ *
+ * The encoded lines of trials are appended into a direct buffer, reused for
+ * the whole session, and committed (written to the file) at the configured points: after every trial, after every block, or once at
+ * least an interval has passed. flush() commits whatever is left and forces
+ * the file to disk, for when the game exits.
+ *
+ * Classes Related To:
+ *  -DataWriter.java
+ *      -Opens the file of the subject and appends the line of every trial.
+ *  -ResultsCommit.java (config)
+ *      -When to commit.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class ResultsWriter {
+
+    /** Size of the buffer trials are appended into, in bytes. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** The file. */
+    private final Path file;
+
+    /** Channel to the file, opened for appending. */
+    private final FileChannel channel;
+
+    /** Buffer the trials are appended into. */
+    private final ByteBuffer buffer;
+
+    /** When to commit. */
+    private final ResultsCommit commit;
+
+    /** Nanoseconds between commits for ResultsCommit.INTERVAL. */
+    private final long commitInterval;
+
+    /** System.nanoTime() of the last commit. */
+    private long lastCommit;
+
+    /**
+     * Open a results file for appending, creating it and its folders if needed.
+     * @param file the file.
+     * @param columnNames line written first if the file is new or empty.
+     * @param commit when to commit.
+     * @param commitIntervalMillis milliseconds between commits for ResultsCommit.INTERVAL.
+     * @throws IOException if the file cannot be opened.
+     */
+    public ResultsWriter(Path file, String columnNames, ResultsCommit commit, int commitIntervalMillis)
+            throws IOException {
+        this.file = file;
+        this.commit = commit;
+        this.commitInterval = commitIntervalMillis * 1000000L;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.lastCommit = System.nanoTime();
+        if (this.channel.size() == 0) {
+            byte[] header = columnNames.getBytes(StandardCharsets.UTF_8);
+            this.appendBytes(header, header.length);
+            this.commit();
+        }
+    }
+
+    /**
+     * Append the line of a trial and commit if this is a commit point.
+     * @param line the line in UTF-8, ending in a newline.
+     * @param length length of the line in the array.
+     * @param lastOfBlock true if this was the last trial of a block.
+     * @throws IOException if committing fails.
+     */
+    public void appendTrial(byte[] line, int length, boolean lastOfBlock) throws IOException {
+        this.appendBytes(line, length);
+        switch (this.commit) {
+        case TRIAL:
+            this.commit();
+            break;
+        case BLOCK:
+            if (lastOfBlock) {
+                this.commit();
+            }
+            break;
+        case INTERVAL:
+            if (System.nanoTime() - this.lastCommit >= this.commitInterval) {
+                this.commit();
+            }
+            break;
+        }
+    }
+
+    /**
+     * Copy bytes into the buffer, writing out what is already there if they do not fit.
+     */
+    private void appendBytes(byte[] bytes, int length) throws IOException {
+        if (length > this.buffer.remaining()) {
+            this.writeBuffer();
+        }
+        if (length > this.buffer.remaining()) {
+            this.writeFully(ByteBuffer.wrap(bytes, 0, length));
+        } else {
+            this.buffer.put(bytes, 0, length);
+        }
+    }
+
+    /**
+     * Write everything appended to the file.
+     * @throws IOException if writing fails.
+     */
+    public void commit() throws IOException {
+        this.writeBuffer();
+        this.lastCommit = System.nanoTime();
+    }
+
+    private void writeBuffer() throws IOException {
+        this.buffer.flip();
+        this.writeFully(this.buffer);
+        this.buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            this.channel.write(bytes);
+        }
+    }
+
+    /**
+     * Commit, then force the file to disk so the results survive the computer stopping too.
+     * @throws IOException if writing fails.
+     */
+    public void flush() throws IOException {
+        this.commit();
+        this.channel.force(false);
+    }
+
+    /**
+     * Flush and close the file.
+     * @throws IOException if writing fails.
+     */
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+}
@@ -0,0 +1,139 @@
+package controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot of a session at a trial boundary, from which the session can be
+ * resumed at the next trial if the game exits before the end.
+ *
+ * The state itself is encoded by DotsGameController and DotsPairGenerator;
+ * this holds it with the subject ID and reads and writes the file. The file
+ * is written whole to a temporary file, forced to disk and renamed over the
+ * last checkpoint, so there is always one complete checkpoint.
+ *
+ * The file is big-endian: int magic "DCKP", short version, short length and
+ * UTF-8 bytes of the subject ID, int length and bytes of the state, and the
+ * CRC32 of everything before it.
+ *
+ * Classes Related To:
+ *  -DotsGameController.java
+ *      -Encodes the state at the end of every trial and restores it when a subject logs in again.
+ *  -ResultsQueue.java
+ *      -Writes the checkpoints in the background, after the trial they follow.
+ *
+ * @author Tony Jiang
+ *
+ */
+public final class SessionCheckpoint {
+
+    /** First four bytes of a checkpoint, "DCKP". */
+    static final int MAGIC = 0x44434B50;
+
+    /** Version of the format. */
+    static final int VERSION = 1;
+
+    private final String subjectId;
+    private final byte[] state;
+
+    /**
+     * Constructor.
+     * @param subjectId ID of the subject.
+     * @param state the encoded state.
+     */
+    public SessionCheckpoint(String subjectId, byte[] state) {
+        this.subjectId = subjectId;
+        this.state = state;
+    }
+
+    public String getSubjectId() {
+        return this.subjectId;
+    }
+
+    /**
+     * @return a stream to decode the state from.
+     */
+    public DataInputStream openState() {
+        return new DataInputStream(new ByteArrayInputStream(this.state));
+    }
+
+    /**
+     * Replace the checkpoint in a file with this one, atomically.
+     * @param file the file.
+     * @throws IOException if writing fails. The last checkpoint is left as it was.
+     */
+    public void write(Path file) throws IOException {
+        byte[] subjectId = this.subjectId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 2 + 2 + subjectId.length + 4 + this.state.length + 4);
+        buffer.putInt(MAGIC).putShort((short) VERSION);
+        buffer.putShort((short) subjectId.length).put(subjectId);
+        buffer.putInt(this.state.length).put(this.state);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Read the checkpoint in a file.
+     * @param file the file.
+     * @return the checkpoint, null if there is none.
+     * @throws IOException if it cannot be read or is not a checkpoint of this version.
+     */
+    public static SessionCheckpoint read(Path file) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 4);
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION
+                    || buffer.getInt(bytes.length - 4) != (int) crc.getValue()) {
+                throw new IOException(file + " is not a session checkpoint of version " + VERSION + ".");
+            }
+            byte[] subjectId = new byte[buffer.getShort()];
+            buffer.get(subjectId);
+            byte[] state = new byte[buffer.getInt()];
+            buffer.get(state);
+            return new SessionCheckpoint(new String(subjectId, StandardCharsets.UTF_8), state);
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is not a session checkpoint of version " + VERSION + ".", e);
+        }
+    }
+
+    /**
+     * Delete the checkpoint in a file, once the session is over.
+     * @param file the file.
+     * @throws IOException if it cannot be deleted.
+     */
+    public static void delete(Path file) throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
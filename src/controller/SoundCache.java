@@ -0,0 +1,138 @@
+package controller;
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.scene.media.AudioClip;
+
+/**
+ * Every sound under res/sounds, decoded once into AudioClips.
+ *
+ * The clips are loaded on a background thread when the cache is created, so
+ * startup does not wait for decoding. Playing goes through the same thread,
+ * so a response never waits for a sound: play() only queues the request and
+ * returns. The play request dispatch latency, from play() to AudioClip.play()
+ * having returned, is measured and logged. AudioClip.play() is asynchronous,
+ * so this is not the time until the sound is heard.
+ *
+ * Classes Related To:
+ *  -DotsGameController.java
+ *      -Plays the feedback sounds.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class SoundCache {
+
+    /** Logger */
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Folder the sounds are in. */
+    static final String SOUNDS_FOLDER = "/res/sounds/";
+
+    /** Every file in SOUNDS_FOLDER. */
+    static final String[] SOUND_FILES = {
+        "Applause.mp3", "Basso.aiff", "Correct1.wav", "Ping.aiff", "Powerup.wav"
+    };
+
+    /** Decoded clips by file name. */
+    private final ConcurrentHashMap<String, AudioClip> clips;
+
+    /** Thread loading and playing the clips. */
+    private final ExecutorService soundThread;
+
+    /** Play request dispatch latency of the last play(), in nanoseconds. */
+    private volatile long lastDispatchLatency;
+
+    /** Largest play request dispatch latency so far in nanoseconds. */
+    private volatile long maxDispatchLatency;
+
+    /**
+     * Constructor for SoundCache. Starts decoding every sound in the background.
+     */
+    public SoundCache() {
+        this.clips = new ConcurrentHashMap<String, AudioClip>();
+        this.soundThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Sound player");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.soundThread.execute(this::loadAll);
+    }
+
+    /**
+     * Decode every sound in SOUND_FILES.
+     */
+    private void loadAll() {
+        long start = System.nanoTime();
+        for (String fileName : SOUND_FILES) {
+            this.load(fileName);
+        }
+        logger.log(Level.INFO, "Loaded " + this.clips.size() + " sounds in "
+                + (System.nanoTime() - start) / 1000000.0 + " ms");
+    }
+
+    /**
+     * Decode a sound if it is not in the cache yet.
+     * @param fileName name of the file in SOUNDS_FOLDER.
+     * @return the clip, or null if it could not be loaded.
+     */
+    private AudioClip load(String fileName) {
+        AudioClip clip = this.clips.get(fileName);
+        if (clip != null) {
+            return clip;
+        }
+        URL url = getClass().getResource(SOUNDS_FOLDER + fileName);
+        if (url == null) {
+            System.err.println("Sound " + SOUNDS_FOLDER + fileName + " not found.");
+            return null;
+        }
+        try {
+            clip = new AudioClip(url.toString());
+            this.clips.put(fileName, clip);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        return clip;
+    }
+
+    /**
+     * Play a sound. Returns immediately; the play request is made on the sound thread.
+     * @param fileName name of the file in SOUNDS_FOLDER.
+     */
+    public void play(String fileName) {
+        long requested = System.nanoTime();
+        this.soundThread.execute(() -> {
+            AudioClip clip = this.load(fileName);
+            if (clip == null) {
+                return;
+            }
+            clip.play();
+            long latency = System.nanoTime() - requested;
+            this.lastDispatchLatency = latency;
+            if (latency > this.maxDispatchLatency) {
+                this.maxDispatchLatency = latency;
+            }
+            logger.log(Level.FINE, "Dispatched " + fileName + " after " + latency / 1000000.0 + " ms");
+        });
+    }
+
+    /**
+     * @return nanoseconds between the last call to play() and AudioClip.play() having returned,
+     *         0 if none. The sound itself may start later.
+     */
+    public long getLastDispatchLatency() {
+        return this.lastDispatchLatency;
+    }
+
+    /**
+     * @return the largest play request dispatch latency so far in nanoseconds.
+     */
+    public long getMaxDispatchLatency() {
+        return this.maxDispatchLatency;
+    }
+}
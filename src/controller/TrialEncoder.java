@@ -0,0 +1,399 @@
+package controller;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import model.ControlType;
+import model.PlacementOutcome;
+
+/**
+ * Encodes a TrialRecord as a line of the results CSV, straight into a byte
+ * array that is reused from trial to trial, in UTF-8.
+ *
+ * Every field is written digit by digit instead of through intermediate
+ * Strings, so once the array has grown to fit the longest line, encoding a
+ * trial allocates nothing. Times are written exactly, to the nanosecond;
+ * ratios, the percentage and the diameter scale to RATIO_DECIMALS decimals.
+ * The date and time is written as yyyy-MM-ddTHH:mm:ss.nnnnnnnnn.
+ *
+ * Not thread safe; each thread encoding trials needs its own encoder.
+ *
+ * Classes Related To:
+ *  -DataWriter.java
+ *      -The columns of the CSV.
+ *  -ResultsQueue.java
+ *      -Encodes every trial with one encoder on the writer thread.
+ *
+ * @author Tony Jiang
+ *
+ */
+public final class TrialEncoder {
+
+    /** Decimals of the ratios, the percentage and the diameter scale. */
+    static final int RATIO_DECIMALS = 6;
+
+    /** Written for a value that is not known or does not apply. */
+    private static final byte BLANK = '-';
+
+    private static final byte DELIMITER = ',';
+
+    /** Powers of ten that fit in a long. */
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /** Text of the constant fields, encoded once. */
+    private static final byte[] YES_UPPER = bytes("YES");
+    private static final byte[] NO_UPPER = bytes("NO");
+    private static final byte[] YES_LOWER = bytes("yes");
+    private static final byte[] NO_LOWER = bytes("no");
+    private static final byte[] YES = bytes("Yes");
+    private static final byte[] NO = bytes("No");
+    private static final byte[] NAN = bytes("NaN");
+    private static final byte[] INFINITY = bytes("Infinity");
+    private static final byte[] EQUAL_AREAS = bytes("Equal Areas");
+    private static final byte[] INVERSE_AREAS = bytes("Inverse Areas");
+    private static final byte[] EQUAL_AVERAGE_RADII = bytes("Equal Average Radii");
+    private static final byte[] NONE = bytes("None");
+    private static final byte[] PLACED = bytes("Placed");
+    private static final byte[] RESTARTED = bytes("Restarted");
+    private static final byte[] SHRUNK = bytes("Shrunk");
+    private static final byte[] OVERLAPPING = bytes("Overlapping");
+
+    /** The line encoded last, from 0 to length. */
+    private byte[] buffer;
+    private int length;
+
+    public TrialEncoder() {
+        this.buffer = new byte[512];
+    }
+
+    /**
+     * Encode the line of a trial, ending in a newline, replacing the line encoded before.
+     * @param trial the record of the trial.
+     * @return length of the line in getBuffer().
+     */
+    public int encode(TrialRecord trial) {
+        this.length = 0;
+        this.writeString(trial.getSubjectId());
+        this.delimit();
+        this.writeLong(trial.getSubjectAge());
+        this.delimit();
+        this.writeString(trial.getSubjectGender() == null ? null : trial.getSubjectGender().name());
+        this.delimit();
+        this.writeLong(trial.getNumDotsOne());
+        this.delimit();
+        this.writeLong(trial.getNumDotsTwo());
+        this.delimit();
+        this.writeLong(trial.getNumDotsOne() + trial.getNumDotsTwo());
+        this.delimit();
+        this.writeBytes(trial.isYesCorrect() ? YES_UPPER : NO_UPPER);
+        this.delimit();
+        this.writeBytes(trial.isYesCorrect() == trial.isCorrect() ? YES_UPPER : NO_UPPER);
+        this.delimit();
+        this.writeBytes(trial.isCorrect() ? YES_LOWER : NO_LOWER);
+        this.delimit();
+        this.writeLong(trial.getBlock());
+        this.delimit();
+        this.writeControlType(trial.getControlType());
+        this.delimit();
+        this.writeDecimal(greaterToSmaller((double) trial.getNumDotsOne() / trial.getNumDotsTwo()),
+                RATIO_DECIMALS);
+        this.delimit();
+        this.writeDecimal((double) trial.getNumDotsOne() / (trial.getNumDotsOne() + trial.getNumDotsTwo()),
+                RATIO_DECIMALS);
+        this.delimit();
+        this.writeDecimal(greaterToSmaller(trial.getAreaOne() / trial.getAreaTwo()), RATIO_DECIMALS);
+        this.delimit();
+        this.writeString(trial.getColorOne());
+        this.delimit();
+        this.writeString(trial.getColorTwo());
+        this.delimit();
+        this.writeNanos(trial.getResponseTime(), 9);
+        this.delimit();
+        this.writeDateTime(trial.getDateTime());
+        this.delimit();
+        this.writeLong(trial.getConsecutiveRounds());
+        this.delimit();
+        this.writeLong(trial.getSection());
+        this.delimit();
+        this.writeBytes(trial.getSection() >= DotsGameController.SECTION_TO_START_FEEDBACK ? YES : NO);
+        this.delimit();
+        this.put(trial.isFforTrue() ? 'F' : 'J');
+        this.delimit();
+        this.writePlacementOutcome(trial.getPlacementOutcome());
+        this.delimit();
+        this.writeLong(trial.getPlacementRounds());
+        this.delimit();
+        this.writeDecimal(trial.getDiameterScale(), RATIO_DECIMALS);
+        this.delimit();
+        this.writeLong(trial.getSessionSeed());
+        this.delimit();
+        this.writeLong(trial.getTrialSeed());
+        this.delimit();
+        this.writeTiming(trial.getFlash());
+        this.delimit();
+        this.writeTiming(trial.getMask());
+        this.delimit();
+        this.writeNanos(trial.getCorrectedResponseTime(), 9);
+        this.delimit();
+        this.writeFixed(trial.getPrerenderTime(), 6);
+        this.delimit();
+        this.writeFixed(trial.getSwapTime(), 6);
+        this.put('\n');
+        return this.length;
+    }
+
+    /**
+     * @return the array the line was encoded into. Valid until the next encode().
+     */
+    public byte[] getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * @return length of the line encoded last.
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     * @return the line encoded last.
+     */
+    @Override
+    public String toString() {
+        return new String(this.buffer, 0, this.length, StandardCharsets.UTF_8);
+    }
+
+    private static double greaterToSmaller(double ratio) {
+        return ratio < 1 ? 1 / ratio : ratio;
+    }
+
+    private void writeControlType(ControlType controlType) {
+        if (controlType == ControlType.EQUAL_AREAS) {
+            this.writeBytes(EQUAL_AREAS);
+        } else if (controlType == ControlType.INVERSE_AREAS) {
+            this.writeBytes(INVERSE_AREAS);
+        } else if (controlType == ControlType.RADIUS_AVERAGE_EQUAL) {
+            this.writeBytes(EQUAL_AVERAGE_RADII);
+        } else if (controlType == ControlType.NONE) {
+            this.writeBytes(NONE);
+        } else {
+            this.put(BLANK);
+        }
+    }
+
+    private void writePlacementOutcome(PlacementOutcome placementOutcome) {
+        if (placementOutcome == null) {
+            this.put(BLANK);
+            return;
+        }
+        switch (placementOutcome) {
+        case PLACED:
+            this.writeBytes(PLACED);
+            break;
+        case RESTARTED:
+            this.writeBytes(RESTARTED);
+            break;
+        case SHRUNK:
+            this.writeBytes(SHRUNK);
+            break;
+        case OVERLAPPING:
+            this.writeBytes(OVERLAPPING);
+            break;
+        default:
+            this.put(BLANK);
+        }
+    }
+
+    /**
+     * Intended duration, intended frames, onset, offset, measured duration and
+     * frames shown of a stimulus, six columns in all, blank if it was not shown.
+     */
+    private void writeTiming(TrialRecord.Timing timing) {
+        if (timing == null) {
+            for (int i = 0; i < 5; i++) {
+                this.put(BLANK);
+                this.delimit();
+            }
+            this.put(BLANK);
+            return;
+        }
+        this.writeLong(timing.getIntendedMillis());
+        this.delimit();
+        if (timing.getIntendedFrames() > 0) {
+            this.writeLong(timing.getIntendedFrames());
+        } else {
+            this.put(BLANK);
+        }
+        this.delimit();
+        this.writeLong(timing.getOnset());
+        this.delimit();
+        this.writeLong(timing.getOffset());
+        this.delimit();
+        this.writeFixed(timing.getMeasuredDuration(), 6);
+        this.delimit();
+        this.writeLong(timing.getFramesShown());
+    }
+
+    /**
+     * Write yyyy-MM-ddTHH:mm:ss.nnnnnnnnn, blank if null.
+     */
+    private void writeDateTime(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            this.put(BLANK);
+            return;
+        }
+        this.writePadded(dateTime.getYear(), 4);
+        this.put('-');
+        this.writePadded(dateTime.getMonthValue(), 2);
+        this.put('-');
+        this.writePadded(dateTime.getDayOfMonth(), 2);
+        this.put('T');
+        this.writePadded(dateTime.getHour(), 2);
+        this.put(':');
+        this.writePadded(dateTime.getMinute(), 2);
+        this.put(':');
+        this.writePadded(dateTime.getSecond(), 2);
+        this.put('.');
+        this.writePadded(dateTime.getNano(), 9);
+    }
+
+    /**
+     * Write a number of nanoseconds in units of 10^decimals nanoseconds, to the nanosecond.
+     * Blank if NaN.
+     */
+    private void writeNanos(double nanos, int decimals) {
+        if (Double.isNaN(nanos)) {
+            this.put(BLANK);
+        } else {
+            this.writeFixed(Math.round(nanos), decimals);
+        }
+    }
+
+    /**
+     * Write a value rounded to a number of decimals.
+     */
+    private void writeDecimal(double value, int decimals) {
+        if (Double.isNaN(value)) {
+            this.writeBytes(NAN);
+            return;
+        }
+        if (value < 0) {
+            this.put('-');
+            value = -value;
+        }
+        double scaled = value * POWERS_OF_TEN[decimals];
+        if (scaled >= Long.MAX_VALUE) {
+            this.writeBytes(INFINITY);
+            return;
+        }
+        this.writeFixed(Math.round(scaled), decimals);
+    }
+
+    /**
+     * Write value / 10^decimals with exactly that many decimals.
+     */
+    private void writeFixed(long value, int decimals) {
+        if (value < 0) {
+            this.put('-');
+            value = -value;
+        }
+        this.writeLong(value / POWERS_OF_TEN[decimals]);
+        this.put('.');
+        this.writePadded(value % POWERS_OF_TEN[decimals], decimals);
+    }
+
+    private void writeLong(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                this.writeString(Long.toString(value));
+                return;
+            }
+            this.put('-');
+            value = -value;
+        }
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        this.writePadded(value, digits);
+    }
+
+    /**
+     * Write a non-negative value with at least a number of digits, padded with zeros.
+     */
+    private void writePadded(long value, int digits) {
+        this.ensureCapacity(digits);
+        for (int i = this.length + digits - 1; i >= this.length; i--) {
+            this.buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.length += digits;
+    }
+
+    /**
+     * Write a String in UTF-8, blank if null.
+     */
+    private void writeString(String text) {
+        if (text == null) {
+            this.put(BLANK);
+            return;
+        }
+        this.ensureCapacity(text.length() * 3);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                this.buffer[this.length++] = (byte) c;
+            } else if (c < 0x800) {
+                this.buffer[this.length++] = (byte) (0xC0 | c >> 6);
+                this.buffer[this.length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                this.buffer[this.length++] = (byte) (0xF0 | codePoint >> 18);
+                this.buffer[this.length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                this.buffer[this.length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                this.buffer[this.length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                this.buffer[this.length++] = '?';
+            } else {
+                this.buffer[this.length++] = (byte) (0xE0 | c >> 12);
+                this.buffer[this.length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                this.buffer[this.length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private void writeBytes(byte[] bytes) {
+        this.ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.length, bytes.length);
+        this.length += bytes.length;
+    }
+
+    private void delimit() {
+        this.put(DELIMITER);
+    }
+
+    private void put(int b) {
+        this.ensureCapacity(1);
+        this.buffer[this.length++] = (byte) b;
+    }
+
+    private void ensureCapacity(int more) {
+        if (this.length + more > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.length + more));
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
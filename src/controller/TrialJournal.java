@@ -0,0 +1,455 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import model.ControlType;
+import model.PlacementOutcome;
+import model.Player;
+
+/**
+ * Append-only binary journal of the trials of one subject, next to the
+ * results CSV. Each trial is one fixed-width record written through a memory
+ * mapping of the file, so it is in the operating system's hands, and survives
+ * the game crashing, as soon as it is written. Each record ends in a CRC32 of
+ * the rest of it, so a record torn by a crash or power loss is recognized.
+ *
+ * Opening a journal first recovers it: the records are checked in order and
+ * the file is truncated after the last good one. The last record is the last
+ * trial completed. JournalToCsvMain turns a journal back into the CSV of
+ * DataWriter.
+ *
+ * The file is big-endian. A header of HEADER_SIZE bytes:
+ *  int magic "DTJL", short version, short 0, int RECORD_SIZE, int 0.
+ * Then records of RECORD_SIZE bytes, every field at a fixed offset (see
+ * put()), strings as a short length and a fixed number of chars, and the
+ * CRC32 of the preceding bytes in the last four. Records with longer strings
+ * are refused rather than cut, so the CSV can always be regenerated exactly.
+ *
+ * Not thread safe; written by the writer thread of ResultsQueue.
+ *
+ * Classes Related To:
+ *  -ResultsQueue.java
+ *      -Appends every trial to the subject's journal.
+ *  -TrialRecord.java
+ *      -What each record holds.
+ *  -JournalToCsvMain.java (main)
+ *      -Regenerates the CSV from a journal.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class TrialJournal {
+
+    /** Logger */
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** First four bytes of a journal, "DTJL". */
+    static final int MAGIC = 0x44544A4C;
+
+    /** Version of the format. */
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+
+    /** Size of every record, in bytes. The fields take 338 and the CRC 4; the rest is spare. */
+    static final int RECORD_SIZE = 384;
+
+    /** First four bytes of every record, "TRL1", so zeros are never a record. */
+    static final int RECORD_MAGIC = 0x54524C31;
+
+    /** Records mapped at a time; the file grows by this many records at once. */
+    static final int RECORDS_PER_MAPPING = 4096;
+
+    /** Most chars of the subject ID and of the color names; see canHold(). */
+    static final int SUBJECT_ID_CHARS = 32;
+    static final int COLOR_CHARS = 16;
+
+    /** Bits of the flags byte. */
+    private static final int YES_CORRECT = 1;
+    private static final int CORRECT = 1 << 1;
+    private static final int F_FOR_TRUE = 1 << 2;
+    private static final int LAST_OF_BLOCK = 1 << 3;
+    private static final int HAS_FLASH = 1 << 4;
+    private static final int HAS_MASK = 1 << 5;
+    private static final int HAS_DATE_TIME = 1 << 6;
+
+    /** The file. */
+    private final Path file;
+
+    private final FileChannel channel;
+
+    /** Mapping of the records from firstMapped on. */
+    private MappedByteBuffer mapped;
+    private long firstMapped;
+
+    /** Number of records in the journal. */
+    private long numRecords;
+
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Open a journal for appending, creating it and its folders if needed,
+     * after recovering it.
+     * @param file the file.
+     * @throws IOException if it cannot be opened or is not a journal.
+     */
+    public TrialJournal(Path file) throws IOException {
+        this.file = file;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            this.numRecords = recover(this.channel, file);
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+        this.map(this.numRecords);
+    }
+
+    /**
+     * Append the record of a trial.
+     * @param trial the record.
+     * @throws IOException if the file cannot be grown.
+     * @throws IllegalArgumentException if the record does not fit; see canHold().
+     */
+    public void append(TrialRecord trial) throws IOException {
+        if (!canHold(trial)) {
+            throw new IllegalArgumentException("Subject ID or color names too long to journal: "
+                    + trial.getSubjectId() + ", " + trial.getColorOne() + ", " + trial.getColorTwo());
+        }
+        if (this.numRecords - this.firstMapped >= RECORDS_PER_MAPPING) {
+            this.mapped.force();
+            this.map(this.numRecords);
+        }
+        int start = (int) (this.numRecords - this.firstMapped) * RECORD_SIZE;
+        this.mapped.position(start);
+        put(this.mapped, trial, this.numRecords);
+        this.mapped.position(start).limit(start + RECORD_SIZE - 4);
+        this.crc.reset();
+        this.crc.update(this.mapped);
+        this.mapped.limit(this.mapped.capacity());
+        this.mapped.putInt(start + RECORD_SIZE - 4, (int) this.crc.getValue());
+        this.numRecords++;
+    }
+
+    /**
+     * Force the records to disk, so they survive the computer stopping too.
+     */
+    public void flush() {
+        this.mapped.force();
+    }
+
+    /**
+     * Flush and close the journal. The mapped space after the last record is
+     * left to the next recovery, as the file cannot be truncated while mapped
+     * on every system.
+     * @throws IOException if closing fails.
+     */
+    public void close() throws IOException {
+        this.flush();
+        this.channel.close();
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    public long getNumRecords() {
+        return this.numRecords;
+    }
+
+    /**
+     * @param subjectId ID of a subject.
+     * @return true if the ID is short enough to be journaled whole.
+     */
+    public static boolean canHoldSubjectId(String subjectId) {
+        return subjectId == null || subjectId.length() <= SUBJECT_ID_CHARS;
+    }
+
+    /**
+     * Strings are stored in a fixed number of chars, so the subject ID must
+     * have at most SUBJECT_ID_CHARS and the color names at most COLOR_CHARS.
+     * @param trial the record of a trial.
+     * @return true if every string of the record is short enough to be journaled whole.
+     */
+    public static boolean canHold(TrialRecord trial) {
+        return canHoldSubjectId(trial.getSubjectId())
+                && (trial.getColorOne() == null || trial.getColorOne().length() <= COLOR_CHARS)
+                && (trial.getColorTwo() == null || trial.getColorTwo().length() <= COLOR_CHARS);
+    }
+
+    /**
+     * Map the records from a record on.
+     */
+    private void map(long firstRecord) throws IOException {
+        this.firstMapped = firstRecord;
+        this.mapped = this.channel.map(FileChannel.MapMode.READ_WRITE,
+                HEADER_SIZE + firstRecord * RECORD_SIZE, (long) RECORDS_PER_MAPPING * RECORD_SIZE);
+    }
+
+    /**
+     * Recover the journal in a file: write the header if there is none, and
+     * truncate the file after the last good record.
+     * @param file the file.
+     * @return number of good records.
+     * @throws IOException if it cannot be read or is not a journal.
+     */
+    public static long recover(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return recover(channel, file);
+        }
+    }
+
+    /**
+     * Recover every journal in the subfolders of a results folder, e.g. at startup
+     * after a crash. A journal that cannot be recovered is reported and skipped.
+     * @param resultsFolder the folder, with a subfolder per subject.
+     */
+    public static void recoverAll(Path resultsFolder) {
+        if (!Files.isDirectory(resultsFolder)) {
+            return;
+        }
+        try (DirectoryStream<Path> subjects = Files.newDirectoryStream(resultsFolder, Files::isDirectory)) {
+            for (Path subject : subjects) {
+                try (DirectoryStream<Path> journals = Files.newDirectoryStream(subject, "journal_*.bin")) {
+                    for (Path journal : journals) {
+                        try {
+                            recover(journal);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long recover(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() < HEADER_SIZE) {
+            header.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putInt(RECORD_SIZE).putInt(0);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.force(true);
+            return 0;
+        }
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getShort() != VERSION || header.getShort() != 0
+                || header.getInt() != RECORD_SIZE) {
+            throw new IOException(file + " is not a trial journal of version " + VERSION + ".");
+        }
+        long numRecords = 0;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        CRC32 crc = new CRC32();
+        while (HEADER_SIZE + (numRecords + 1) * RECORD_SIZE <= channel.size()) {
+            record.clear();
+            readFully(channel, record, HEADER_SIZE + numRecords * RECORD_SIZE);
+            if (!isValid(record, crc, numRecords)) {
+                break;
+            }
+            numRecords++;
+        }
+        long end = HEADER_SIZE + numRecords * RECORD_SIZE;
+        if (channel.size() > end) {
+            logger.info("Recovered " + numRecords + " trials from " + file + ", truncated "
+                    + (channel.size() - end) + " bytes after them.");
+            channel.truncate(end);
+            channel.force(true);
+        }
+        return numRecords;
+    }
+
+    /**
+     * Read every good record of a journal, without changing the file.
+     * @param file the journal.
+     * @return the records, in order.
+     * @throws IOException if it cannot be read or is not a journal.
+     */
+    public static List<TrialRecord> read(Path file) throws IOException {
+        List<TrialRecord> records = new ArrayList<TrialRecord>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.size() >= HEADER_SIZE) {
+                readFully(channel, header, 0);
+                header.flip();
+            }
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getShort() != VERSION
+                    || header.getShort() != 0 || header.getInt() != RECORD_SIZE) {
+                throw new IOException(file + " is not a trial journal of version " + VERSION + ".");
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            CRC32 crc = new CRC32();
+            while (HEADER_SIZE + (records.size() + 1L) * RECORD_SIZE <= channel.size()) {
+                record.clear();
+                readFully(channel, record, HEADER_SIZE + (long) records.size() * RECORD_SIZE);
+                if (!isValid(record, crc, records.size())) {
+                    break;
+                }
+                records.add(get(record));
+            }
+        }
+        return records;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+        }
+    }
+
+    /**
+     * Check the marker, sequence number and checksum of a record read in full.
+     */
+    private static boolean isValid(ByteBuffer record, CRC32 crc, long sequence) {
+        record.position(0).limit(RECORD_SIZE - 4);
+        crc.reset();
+        crc.update(record);
+        record.limit(RECORD_SIZE);
+        return record.getInt(0) == RECORD_MAGIC && record.getLong(4) == sequence
+                && record.getInt(RECORD_SIZE - 4) == (int) crc.getValue();
+    }
+
+    /**
+     * Write a record from the buffer's position, all but the checksum.
+     */
+    private static void put(ByteBuffer buffer, TrialRecord trial, long sequence) {
+        int flags = (trial.isYesCorrect() ? YES_CORRECT : 0)
+                | (trial.isCorrect() ? CORRECT : 0)
+                | (trial.isFforTrue() ? F_FOR_TRUE : 0)
+                | (trial.isLastOfBlock() ? LAST_OF_BLOCK : 0)
+                | (trial.getFlash() != null ? HAS_FLASH : 0)
+                | (trial.getMask() != null ? HAS_MASK : 0)
+                | (trial.getDateTime() != null ? HAS_DATE_TIME : 0);
+        buffer.putInt(RECORD_MAGIC);
+        buffer.putLong(sequence);
+        buffer.put((byte) flags);
+        putString(buffer, trial.getSubjectId(), SUBJECT_ID_CHARS);
+        buffer.putInt(trial.getSubjectAge());
+        buffer.put((byte) (trial.getSubjectGender() == null ? -1 : trial.getSubjectGender().ordinal()));
+        buffer.putInt(trial.getNumDotsOne());
+        buffer.putInt(trial.getNumDotsTwo());
+        buffer.putDouble(trial.getAreaOne());
+        buffer.putDouble(trial.getAreaTwo());
+        buffer.putInt(trial.getBlock());
+        buffer.putInt(trial.getSection());
+        buffer.put((byte) (trial.getControlType() == null ? -1 : trial.getControlType().ordinal()));
+        putString(buffer, trial.getColorOne(), COLOR_CHARS);
+        putString(buffer, trial.getColorTwo(), COLOR_CHARS);
+        buffer.putDouble(trial.getResponseTime());
+        buffer.putDouble(trial.getCorrectedResponseTime());
+        LocalDateTime dateTime = trial.getDateTime();
+        buffer.putLong(dateTime == null ? 0 : dateTime.toLocalDate().toEpochDay());
+        buffer.putLong(dateTime == null ? 0 : dateTime.toLocalTime().toNanoOfDay());
+        buffer.putInt(trial.getConsecutiveRounds());
+        buffer.put((byte) (trial.getPlacementOutcome() == null ? -1 : trial.getPlacementOutcome().ordinal()));
+        buffer.putInt(trial.getPlacementRounds());
+        buffer.putDouble(trial.getDiameterScale());
+        buffer.putLong(trial.getSessionSeed());
+        buffer.putLong(trial.getTrialSeed());
+        putTiming(buffer, trial.getFlash());
+        putTiming(buffer, trial.getMask());
+        buffer.putLong(trial.getPrerenderTime());
+        buffer.putLong(trial.getSwapTime());
+    }
+
+    /**
+     * Read a record checked with isValid().
+     */
+    private static TrialRecord get(ByteBuffer buffer) {
+        buffer.position(12);
+        int flags = buffer.get();
+        TrialRecord.Builder builder = new TrialRecord.Builder()
+                .yesCorrect((flags & YES_CORRECT) != 0)
+                .correct((flags & CORRECT) != 0)
+                .FforTrue((flags & F_FOR_TRUE) != 0)
+                .lastOfBlock((flags & LAST_OF_BLOCK) != 0);
+        String subjectId = getString(buffer, SUBJECT_ID_CHARS);
+        int subjectAge = buffer.getInt();
+        int gender = buffer.get();
+        builder.subject(subjectId, subjectAge, gender < 0 ? null : Player.Gender.values()[gender]);
+        builder.numDots(buffer.getInt(), buffer.getInt());
+        builder.areas(buffer.getDouble(), buffer.getDouble());
+        builder.block(buffer.getInt(), buffer.getInt());
+        int controlType = buffer.get();
+        builder.controlType(controlType < 0 ? null : ControlType.values()[controlType]);
+        builder.colors(getString(buffer, COLOR_CHARS), getString(buffer, COLOR_CHARS));
+        builder.responseTimes(buffer.getDouble(), buffer.getDouble());
+        long epochDay = buffer.getLong();
+        long nanoOfDay = buffer.getLong();
+        if ((flags & HAS_DATE_TIME) != 0) {
+            builder.dateTime(LocalDateTime.of(LocalDate.ofEpochDay(epochDay), LocalTime.ofNanoOfDay(nanoOfDay)));
+        }
+        builder.consecutiveRounds(buffer.getInt());
+        int placementOutcome = buffer.get();
+        builder.placement(placementOutcome < 0 ? null : PlacementOutcome.values()[placementOutcome],
+                buffer.getInt(), buffer.getDouble());
+        builder.sessionSeed(buffer.getLong());
+        builder.trialSeed(buffer.getLong());
+        TrialRecord.Timing flash = getTiming(buffer);
+        TrialRecord.Timing mask = getTiming(buffer);
+        builder.timings((flags & HAS_FLASH) != 0 ? flash : null, (flags & HAS_MASK) != 0 ? mask : null);
+        builder.renderTimes(buffer.getLong(), buffer.getLong());
+        return builder.build();
+    }
+
+    /**
+     * Write a string as its length, -1 if null, and a fixed number of chars,
+     * which it must fit in.
+     */
+    private static void putString(ByteBuffer buffer, String text, int chars) {
+        int length = text == null ? 0 : text.length();
+        buffer.putShort((short) (text == null ? -1 : length));
+        for (int i = 0; i < chars; i++) {
+            buffer.putChar(i < length ? text.charAt(i) : 0);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int chars) {
+        int length = buffer.getShort();
+        char[] text = new char[chars];
+        for (int i = 0; i < chars; i++) {
+            text[i] = buffer.getChar();
+        }
+        return length < 0 ? null : new String(text, 0, length);
+    }
+
+    /**
+     * Write the timing of a stimulus, zeros if it was not shown.
+     */
+    private static void putTiming(ByteBuffer buffer, TrialRecord.Timing timing) {
+        buffer.putInt(timing == null ? 0 : timing.getIntendedMillis());
+        buffer.putInt(timing == null ? 0 : timing.getIntendedFrames());
+        buffer.putLong(timing == null ? 0 : timing.getOnset());
+        buffer.putLong(timing == null ? 0 : timing.getOffset());
+        buffer.putLong(timing == null ? 0 : timing.getMeasuredDuration());
+        buffer.putInt(timing == null ? 0 : timing.getFramesShown());
+    }
+
+    private static TrialRecord.Timing getTiming(ByteBuffer buffer) {
+        return new TrialRecord.Timing(buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getLong(),
+                buffer.getLong(), buffer.getInt());
+    }
+}
@@ -0,0 +1,453 @@
+package controller;
+
+import java.time.LocalDateTime;
+
+import model.ControlType;
+import model.DotsPair;
+import model.PlacementOutcome;
+import model.Player;
+
+/**
+ * Everything written to the results for one trial, copied out of the
+ * subject, the dots pair and the controller so it can be written on another
+ * thread while the game goes on. Immutable; built with a Builder.
+ *
+ * Classes Related To:
+ *  -DataWriter.java
+ *      -Builds a record for every trial and formats it as a line of the CSV.
+ *  -ResultsQueue.java
+ *      -Hands the records to the thread writing them.
+ *
+ * @author Tony Jiang
+ *
+ */
+public final class TrialRecord {
+
+    /**
+     * Timing of a stimulus (the dots or the mask) once it is off the screen.
+     */
+    public static final class Timing {
+        private final int intendedMillis;
+        private final int intendedFrames;
+        private final long onset;
+        private final long offset;
+        private final long measuredDuration;
+        private final int framesShown;
+
+        public Timing(int intendedMillis, int intendedFrames, long onset, long offset,
+                long measuredDuration, int framesShown) {
+            this.intendedMillis = intendedMillis;
+            this.intendedFrames = intendedFrames;
+            this.onset = onset;
+            this.offset = offset;
+            this.measuredDuration = measuredDuration;
+            this.framesShown = framesShown;
+        }
+
+        /**
+         * @param phase presentation of the stimulus, null if it was not shown.
+         * @return its timing, null if it was not shown.
+         */
+        static Timing of(FramePresenter.StimulusPhase phase) {
+            if (phase == null) {
+                return null;
+            }
+            return new Timing(phase.getIntendedMillis(), phase.getIntendedFrames(), phase.getOnset(),
+                    phase.getOffset(), phase.getMeasuredDuration(), phase.getFramesShown());
+        }
+
+        public int getIntendedMillis() {
+            return this.intendedMillis;
+        }
+
+        /** @return frames the stimulus was meant to be shown for, 0 if not frame-locked. */
+        public int getIntendedFrames() {
+            return this.intendedFrames;
+        }
+
+        public long getOnset() {
+            return this.onset;
+        }
+
+        public long getOffset() {
+            return this.offset;
+        }
+
+        public long getMeasuredDuration() {
+            return this.measuredDuration;
+        }
+
+        public int getFramesShown() {
+            return this.framesShown;
+        }
+    }
+
+    private final String subjectId;
+    private final int subjectAge;
+    private final Player.Gender subjectGender;
+    private final int numDotsOne;
+    private final int numDotsTwo;
+    private final double areaOne;
+    private final double areaTwo;
+    private final boolean yesCorrect;
+    private final boolean correct;
+    private final int block;
+    private final ControlType controlType;
+    private final String colorOne;
+    private final String colorTwo;
+    /** Response time in nanoseconds. */
+    private final double responseTime;
+    /** Response time from the onset of the dots in nanoseconds, NaN if not known. */
+    private final double correctedResponseTime;
+    private final LocalDateTime dateTime;
+    private final int consecutiveRounds;
+    private final int section;
+    private final boolean FforTrue;
+    private final PlacementOutcome placementOutcome;
+    private final int placementRounds;
+    private final double diameterScale;
+    private final long sessionSeed;
+    private final long trialSeed;
+    /** Timing of the dots and of the mask, null if not shown. */
+    private final Timing flash;
+    private final Timing mask;
+    /** Nanoseconds spent drawing the dots ahead and swapping them on screen. */
+    private final long prerenderTime;
+    private final long swapTime;
+    /** Whether this was the last trial of its block. */
+    private final boolean lastOfBlock;
+
+    private TrialRecord(Builder builder) {
+        this.subjectId = builder.subjectId;
+        this.subjectAge = builder.subjectAge;
+        this.subjectGender = builder.subjectGender;
+        this.numDotsOne = builder.numDotsOne;
+        this.numDotsTwo = builder.numDotsTwo;
+        this.areaOne = builder.areaOne;
+        this.areaTwo = builder.areaTwo;
+        this.yesCorrect = builder.yesCorrect;
+        this.correct = builder.correct;
+        this.block = builder.block;
+        this.controlType = builder.controlType;
+        this.colorOne = builder.colorOne;
+        this.colorTwo = builder.colorTwo;
+        this.responseTime = builder.responseTime;
+        this.correctedResponseTime = builder.correctedResponseTime;
+        this.dateTime = builder.dateTime;
+        this.consecutiveRounds = builder.consecutiveRounds;
+        this.section = builder.section;
+        this.FforTrue = builder.FforTrue;
+        this.placementOutcome = builder.placementOutcome;
+        this.placementRounds = builder.placementRounds;
+        this.diameterScale = builder.diameterScale;
+        this.sessionSeed = builder.sessionSeed;
+        this.trialSeed = builder.trialSeed;
+        this.flash = builder.flash;
+        this.mask = builder.mask;
+        this.prerenderTime = builder.prerenderTime;
+        this.swapTime = builder.swapTime;
+        this.lastOfBlock = builder.lastOfBlock;
+    }
+
+    /**
+     * Collects the values of a record. Not thread safe; build() copies them
+     * into a record that is.
+     */
+    public static final class Builder {
+        private String subjectId;
+        private int subjectAge;
+        private Player.Gender subjectGender;
+        private int numDotsOne;
+        private int numDotsTwo;
+        private double areaOne;
+        private double areaTwo;
+        private boolean yesCorrect;
+        private boolean correct;
+        private int block;
+        private ControlType controlType;
+        private String colorOne;
+        private String colorTwo;
+        private double responseTime;
+        private double correctedResponseTime = Double.NaN;
+        private LocalDateTime dateTime;
+        private int consecutiveRounds;
+        private int section;
+        private boolean FforTrue;
+        private PlacementOutcome placementOutcome;
+        private int placementRounds;
+        private double diameterScale;
+        private long sessionSeed;
+        private long trialSeed;
+        private Timing flash;
+        private Timing mask;
+        private long prerenderTime;
+        private long swapTime;
+        private boolean lastOfBlock;
+
+        /**
+         * Copy the subject's details, response and score.
+         * @param player the subject.
+         * @return this builder.
+         */
+        public Builder player(Player player) {
+            this.subjectId = player.getSubjectID();
+            this.subjectAge = player.getSubjectAge();
+            this.subjectGender = player.getSubjectGender();
+            this.correct = player.isRight();
+            this.responseTime = player.getRT();
+            this.correctedResponseTime = player.getCorrectedRT();
+            this.consecutiveRounds = player.getNumRounds();
+            return this;
+        }
+
+        /**
+         * Copy the numbers, areas and generation details of a pair.
+         * @param dotsPair the pair shown.
+         * @return this builder.
+         */
+        public Builder dotsPair(DotsPair dotsPair) {
+            this.numDotsOne = dotsPair.getDotSetOne().getTotalNumDots();
+            this.numDotsTwo = dotsPair.getDotSetTwo().getTotalNumDots();
+            this.areaOne = dotsPair.getDotSetOne().getTotalArea();
+            this.areaTwo = dotsPair.getDotSetTwo().getTotalArea();
+            this.controlType = dotsPair.getControlType();
+            this.placementOutcome = dotsPair.getPlacementOutcome();
+            this.placementRounds = dotsPair.getPlacementRounds();
+            this.diameterScale = dotsPair.getDiameterScale();
+            this.trialSeed = dotsPair.getSeed();
+            return this;
+        }
+
+        public Builder subject(String subjectId, int subjectAge, Player.Gender subjectGender) {
+            this.subjectId = subjectId;
+            this.subjectAge = subjectAge;
+            this.subjectGender = subjectGender;
+            return this;
+        }
+
+        public Builder numDots(int numDotsOne, int numDotsTwo) {
+            this.numDotsOne = numDotsOne;
+            this.numDotsTwo = numDotsTwo;
+            return this;
+        }
+
+        public Builder areas(double areaOne, double areaTwo) {
+            this.areaOne = areaOne;
+            this.areaTwo = areaTwo;
+            return this;
+        }
+
+        public Builder yesCorrect(boolean yesCorrect) {
+            this.yesCorrect = yesCorrect;
+            return this;
+        }
+
+        public Builder correct(boolean correct) {
+            this.correct = correct;
+            return this;
+        }
+
+        public Builder block(int block, int section) {
+            this.block = block;
+            this.section = section;
+            return this;
+        }
+
+        public Builder controlType(ControlType controlType) {
+            this.controlType = controlType;
+            return this;
+        }
+
+        public Builder colors(String colorOne, String colorTwo) {
+            this.colorOne = colorOne;
+            this.colorTwo = colorTwo;
+            return this;
+        }
+
+        /**
+         * @param responseTime response time in nanoseconds.
+         * @param correctedResponseTime window key press time minus the pulse that first rendered the dots, in nanoseconds, NaN if not known.
+         * @return this builder.
+         */
+        public Builder responseTimes(double responseTime, double correctedResponseTime) {
+            this.responseTime = responseTime;
+            this.correctedResponseTime = correctedResponseTime;
+            return this;
+        }
+
+        public Builder dateTime(LocalDateTime dateTime) {
+            this.dateTime = dateTime;
+            return this;
+        }
+
+        public Builder consecutiveRounds(int consecutiveRounds) {
+            this.consecutiveRounds = consecutiveRounds;
+            return this;
+        }
+
+        public Builder FforTrue(boolean FforTrue) {
+            this.FforTrue = FforTrue;
+            return this;
+        }
+
+        public Builder placement(PlacementOutcome placementOutcome, int placementRounds, double diameterScale) {
+            this.placementOutcome = placementOutcome;
+            this.placementRounds = placementRounds;
+            this.diameterScale = diameterScale;
+            return this;
+        }
+
+        public Builder sessionSeed(long sessionSeed) {
+            this.sessionSeed = sessionSeed;
+            return this;
+        }
+
+        public Builder trialSeed(long trialSeed) {
+            this.trialSeed = trialSeed;
+            return this;
+        }
+
+        public Builder timings(Timing flash, Timing mask) {
+            this.flash = flash;
+            this.mask = mask;
+            return this;
+        }
+
+        /**
+         * @param prerenderTime nanoseconds spent drawing the dots ahead.
+         * @param swapTime nanoseconds spent swapping them on screen.
+         * @return this builder.
+         */
+        public Builder renderTimes(long prerenderTime, long swapTime) {
+            this.prerenderTime = prerenderTime;
+            this.swapTime = swapTime;
+            return this;
+        }
+
+        public Builder lastOfBlock(boolean lastOfBlock) {
+            this.lastOfBlock = lastOfBlock;
+            return this;
+        }
+
+        public TrialRecord build() {
+            return new TrialRecord(this);
+        }
+    }
+
+    public String getSubjectId() {
+        return this.subjectId;
+    }
+
+    public int getSubjectAge() {
+        return this.subjectAge;
+    }
+
+    public Player.Gender getSubjectGender() {
+        return this.subjectGender;
+    }
+
+    public int getNumDotsOne() {
+        return this.numDotsOne;
+    }
+
+    public int getNumDotsTwo() {
+        return this.numDotsTwo;
+    }
+
+    public double getAreaOne() {
+        return this.areaOne;
+    }
+
+    public double getAreaTwo() {
+        return this.areaTwo;
+    }
+
+    public boolean isYesCorrect() {
+        return this.yesCorrect;
+    }
+
+    /** @return true if the subject answered correctly. */
+    public boolean isCorrect() {
+        return this.correct;
+    }
+
+    public int getBlock() {
+        return this.block;
+    }
+
+    public ControlType getControlType() {
+        return this.controlType;
+    }
+
+    public String getColorOne() {
+        return this.colorOne;
+    }
+
+    public String getColorTwo() {
+        return this.colorTwo;
+    }
+
+    public double getResponseTime() {
+        return this.responseTime;
+    }
+
+    public double getCorrectedResponseTime() {
+        return this.correctedResponseTime;
+    }
+
+    public LocalDateTime getDateTime() {
+        return this.dateTime;
+    }
+
+    public int getConsecutiveRounds() {
+        return this.consecutiveRounds;
+    }
+
+    public int getSection() {
+        return this.section;
+    }
+
+    public boolean isFforTrue() {
+        return this.FforTrue;
+    }
+
+    public PlacementOutcome getPlacementOutcome() {
+        return this.placementOutcome;
+    }
+
+    public int getPlacementRounds() {
+        return this.placementRounds;
+    }
+
+    public double getDiameterScale() {
+        return this.diameterScale;
+    }
+
+    public long getSessionSeed() {
+        return this.sessionSeed;
+    }
+
+    public long getTrialSeed() {
+        return this.trialSeed;
+    }
+
+    public Timing getFlash() {
+        return this.flash;
+    }
+
+    public Timing getMask() {
+        return this.mask;
+    }
+
+    public long getPrerenderTime() {
+        return this.prerenderTime;
+    }
+
+    public long getSwapTime() {
+        return this.swapTime;
+    }
+
+    public boolean isLastOfBlock() {
+        return this.lastOfBlock;
+    }
+}
@@ -0,0 +1,136 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * State machine of the trials, replacing the static gameState and feedback_given flags.
+ *
+ * The state is an immutable snapshot of the trial number, the GameState and
+ * whether the subject has responded, held in an AtomicReference. Every
+ * transition is a compare-and-set against the snapshot it was decided from,
+ * so no locks are needed and readers on any thread see a consistent state.
+ *
+ * Transitions made by timers name the trial they were scheduled for. A timer
+ * left over from an earlier trial (or from before a block change) fails its
+ * transition instead of changing a later trial.
+ *
+ * Classes Related To:
+ *  -DotsGameController.java
+ *      -Moves the state as trials are shown and answered.
+ *  -GameState.java
+ *      -The states of a trial.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class TrialStateMachine {
+
+    /**
+     * Immutable state of the current trial.
+     */
+    private static final class Snapshot {
+        final int trial;
+        final GameState gameState;
+        final boolean responded;
+
+        Snapshot(int trial, GameState gameState, boolean responded) {
+            this.trial = trial;
+            this.gameState = gameState;
+            this.responded = responded;
+        }
+    }
+
+    /** The current state. */
+    private final AtomicReference<Snapshot> current;
+
+    /**
+     * Constructor for TrialStateMachine. Starts between blocks, before the first trial.
+     */
+    public TrialStateMachine() {
+        this.current = new AtomicReference<Snapshot>(new Snapshot(0, GameState.CHANGING_BLOCKS, false));
+    }
+
+    /**
+     * Start a new trial showing the dots.
+     * @return the number of the new trial.
+     */
+    public int startTrial() {
+        while (true) {
+            Snapshot before = this.current.get();
+            Snapshot after = new Snapshot(before.trial + 1, GameState.DISPLAYING_DOTS, false);
+            if (this.current.compareAndSet(before, after)) {
+                return after.trial;
+            }
+        }
+    }
+
+    /**
+     * Move a trial from one state to another.
+     * @param trial number of the trial the transition is meant for.
+     * @param from state the trial must be in.
+     * @param to new state.
+     * @return false, changing nothing, if the current trial is another trial or is not in state from.
+     */
+    public boolean transition(int trial, GameState from, GameState to) {
+        while (true) {
+            Snapshot before = this.current.get();
+            if (before.trial != trial || before.gameState != from) {
+                return false;
+            }
+            if (this.current.compareAndSet(before, new Snapshot(trial, to, before.responded))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Move the current trial to a state whatever state it is in.
+     * @param to new state.
+     */
+    public void enter(GameState to) {
+        while (true) {
+            Snapshot before = this.current.get();
+            if (this.current.compareAndSet(before, new Snapshot(before.trial, to, before.responded))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Record the response to the current trial. Only the first response to a
+     * trial is accepted, and only while the dots, the mask or the question are shown.
+     * @return the state the trial was in when the response was accepted, or null if it was not.
+     */
+    public GameState respond() {
+        while (true) {
+            Snapshot before = this.current.get();
+            if (before.responded || !isAcceptingResponse(before.gameState)) {
+                return null;
+            }
+            if (this.current.compareAndSet(before, new Snapshot(before.trial, before.gameState, true))) {
+                return before.gameState;
+            }
+        }
+    }
+
+    private static boolean isAcceptingResponse(GameState gameState) {
+        return gameState == GameState.DISPLAYING_DOTS
+                || gameState == GameState.MASK
+                || gameState == GameState.WAITING_FOR_RESPONSE;
+    }
+
+    public int getTrial() {
+        return this.current.get().trial;
+    }
+
+    public GameState getGameState() {
+        return this.current.get().gameState;
+    }
+
+    /**
+     * @return true if the subject has responded to the current trial.
+     */
+    public boolean hasResponded() {
+        return this.current.get().responded;
+    }
+}
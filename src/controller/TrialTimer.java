@@ -0,0 +1,169 @@
+package controller;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+
+/**
+ * Schedules the timed events of a trial (end of the flash, end of the mask,
+ * end of the get ready bar) on one timer thread.
+ *
+ * Deadlines are measured with System.nanoTime(), which is monotonic, from the
+ * moment the timed stimulus was shown, so durations do not drift with how long
+ * painting or scheduling took. The timer thread wakes SPIN_MARGIN early and
+ * yields until the deadline to make up for coarse OS sleep resolution, then
+ * runs the action on the JavaFX application thread.
+ *
+ * An event cancelled on the JavaFX thread never runs, even if its deadline
+ * has already passed and the action is queued.
+ *
+ * Classes Related To:
+ *  -DotsGameController.java
+ *      -Schedules hiding the dots, hiding the mask and starting the first round.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class TrialTimer {
+
+    /** How long before the deadline the timer thread wakes up, in nanoseconds. */
+    static final long SPIN_MARGIN = TimeUnit.MILLISECONDS.toNanos(2);
+
+    /** The timer thread. */
+    private final ScheduledExecutorService timerThread;
+
+    /**
+     * A scheduled event. Cancel it to stop it from running.
+     */
+    public static class ScheduledEvent {
+
+        /** System.nanoTime() at which the action should run. */
+        private final long deadline;
+
+        /** The action, run on the JavaFX application thread. */
+        private final Runnable action;
+
+        /** Set once the event is cancelled. */
+        private volatile boolean cancelled;
+
+        /** System.nanoTime() at which the action ran, 0 if it has not. */
+        private volatile long firedAt;
+
+        /** Pending wake up of the timer thread. */
+        private ScheduledFuture<?> wakeUp;
+
+        ScheduledEvent(long deadline, Runnable action) {
+            this.deadline = deadline;
+            this.action = action;
+        }
+
+        /**
+         * Stop the event from running. Does nothing if it already ran.
+         */
+        public void cancel() {
+            this.cancelled = true;
+            if (this.wakeUp != null) {
+                this.wakeUp.cancel(false);
+            }
+        }
+
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        public long getDeadline() {
+            return this.deadline;
+        }
+
+        /**
+         * @return nanoseconds between the deadline and the action running, 0 if it has not run.
+         */
+        public long getLateness() {
+            return this.firedAt == 0 ? 0 : this.firedAt - this.deadline;
+        }
+    }
+
+    /**
+     * Constructor for TrialTimer. Starts the timer thread.
+     */
+    public TrialTimer() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread timer = new Thread(r, "Trial timer");
+            timer.setDaemon(true);
+            timer.setPriority(Thread.MAX_PRIORITY);
+            return timer;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.timerThread = executor;
+    }
+
+    /**
+     * @return the current time of the monotonic clock deadlines are measured with, in nanoseconds.
+     */
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Run an action on the JavaFX application thread some time after a start time.
+     * @param start System.nanoTime() the delay is measured from, usually when a stimulus was shown.
+     * @param delayMillis delay in milliseconds.
+     * @param action the action.
+     * @return the scheduled event.
+     */
+    public ScheduledEvent schedule(long start, long delayMillis, Runnable action) {
+        return this.scheduleAt(start + TimeUnit.MILLISECONDS.toNanos(delayMillis), action);
+    }
+
+    /**
+     * Run an action on the JavaFX application thread at a deadline.
+     * @param deadline System.nanoTime() at which to run the action.
+     * @param action the action.
+     * @return the scheduled event.
+     */
+    public ScheduledEvent scheduleAt(long deadline, Runnable action) {
+        ScheduledEvent event = new ScheduledEvent(deadline, action);
+        long wakeUpDelay = Math.max(0, deadline - SPIN_MARGIN - now());
+        event.wakeUp = this.timerThread.schedule(() -> this.fire(event), wakeUpDelay, TimeUnit.NANOSECONDS);
+        return event;
+    }
+
+    /**
+     * Wait out the remaining time before the deadline and pass the action to the JavaFX thread.
+     * @param event the event.
+     */
+    private void fire(ScheduledEvent event) {
+        while (!event.cancelled && now() < event.deadline) {
+            Thread.yield();
+        }
+        if (event.cancelled) {
+            return;
+        }
+        Platform.runLater(() -> {
+            if (!event.cancelled) {
+                event.firedAt = now();
+                event.action.run();
+            }
+        });
+    }
+
+    /**
+     * Cancel an event if there is one.
+     * @param event the event, may be null.
+     */
+    public static void cancel(ScheduledEvent event) {
+        if (event != null) {
+            event.cancel();
+        }
+    }
+
+    /**
+     * Stop the timer thread. Events not yet run are dropped.
+     */
+    public void shutdown() {
+        this.timerThread.shutdownNow();
+    }
+}
@@ -2,6 +2,9 @@ package injector;
 
 import com.google.inject.AbstractModule;
 
+import config.Config;
+import config.ConfigWatcher;
+import config.GameConfig;
 import model.DotsPairGenerator;
 import model.DotsPairGeneratorInterface;
 
@@ -9,6 +12,10 @@ import model.DotsPairGeneratorInterface;
 public class AppInjector extends AbstractModule {
     @Override
     protected void configure() {
+        ConfigWatcher configWatcher = new ConfigWatcher(Config.getLocalConfigPath());
+        configWatcher.start();
+        bind(ConfigWatcher.class).toInstance(configWatcher);
+        bind(GameConfig.class).toInstance(GameConfig.getDefault());
         bind(DotsPairGeneratorInterface.class).to(DotsPairGenerator.class);
     }
 }
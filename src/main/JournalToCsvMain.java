@@ -0,0 +1,87 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+
+import config.Config;
+import config.ResultsCommit;
+import controller.DataWriter;
+import controller.ResultsWriter;
+import controller.TrialEncoder;
+import controller.TrialJournal;
+import controller.TrialRecord;
+
+/**
+ * Regenerates a subject's results CSV from their trial journal, e.g. after
+ * a crash tore the last lines of the CSV or lost the ones not committed yet.
+ * The journal is not changed; records after a torn one are left out.
+ *
+ * Arguments are of the form --key=value:
+ *  --journal=FILE  the journal, e.g. results_dots/1001/journal_1001.bin, or
+ *  --subject=ID    the subject whose journal in results_dots to read.
+ *  --output=FILE   CSV to write. Must not exist. Defaults to the journal's
+ *                  name with .csv in place of .bin.
+ *
+ * Classes Related To:
+ *  -TrialJournal.java (controller)
+ *      -Reads the records.
+ *  -DataWriter.java (controller)
+ *      -The columns of the CSV.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class JournalToCsvMain {
+
+    public static void main(String[] args) {
+        Config.setCommandLineArguments(args);
+        Properties properties = Config.getProperties();
+        String journalName = properties.getProperty("journal");
+        String subjectId = properties.getProperty("subject");
+        if ((journalName == null) == (subjectId == null)) {
+            System.err.println("Give either --journal=FILE or --subject=ID.");
+            System.exit(2);
+        }
+        Path journal = journalName != null ? Paths.get(journalName.trim())
+                : DataWriter.journalFile(subjectId.trim());
+        String defaultOutput = journal.getFileName().toString().replaceFirst("\\.bin$", "") + ".csv";
+        Path output = properties.containsKey("output") ? Paths.get(properties.getProperty("output").trim())
+                : journal.resolveSibling(defaultOutput);
+        if (Files.exists(output)) {
+            System.err.println(output + " already exists.");
+            System.exit(2);
+        }
+        try {
+            List<TrialRecord> records = TrialJournal.read(journal);
+            convert(records, output);
+            System.out.println("Wrote " + records.size() + " trials from " + journal + " to " + output + ".");
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Write the records as a results CSV.
+     * @param records the records, in order.
+     * @param output the CSV.
+     * @throws IOException if it cannot be written.
+     */
+    static void convert(List<TrialRecord> records, Path output) throws IOException {
+        ResultsWriter results = new ResultsWriter(output, DataWriter.generateColumnNames(),
+                ResultsCommit.BLOCK, Integer.MAX_VALUE);
+        TrialEncoder encoder = new TrialEncoder();
+        try {
+            for (TrialRecord record : records) {
+                int length = encoder.encode(record);
+                results.appendTrial(encoder.getBuffer(), length, false);
+            }
+        } finally {
+            results.close();
+        }
+    }
+}
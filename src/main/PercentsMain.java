@@ -1,5 +1,10 @@
 package main;
 
+import java.nio.file.Paths;
+
+import config.Config;
+import controller.DataWriter;
+import controller.TrialJournal;
 import view.GameGUI;
 import javafx.application.Application;
 import javafx.stage.Stage;
@@ -44,14 +49,17 @@ public class PercentsMain extends Application {
     
     /**
     * Main class.
-    * @param args command line arguments
+    * @param args command line arguments. Arguments of the form --key=value
+    *      override configuration properties.
      */
     public static void main(String[] args) {
+        Config.setCommandLineArguments(args);
         launch(args);
     }
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        TrialJournal.recoverAll(Paths.get(DataWriter.RESULTS_FOLDER));
         new GameGUI(primaryStage);
     }
 }
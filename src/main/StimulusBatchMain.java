@@ -0,0 +1,192 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import config.Config;
+import config.GameConfig;
+import controller.GameController;
+
+/**
+ * Generates stimuli without the GUI, in parallel on every core, and writes
+ * them to a compact binary file for auditing offline.
+ *
+ * Either whole sessions (every block of every section) or a number of trials
+ * are generated. The batch is split into units, each a run of trials from its
+ * own DotsPairGenerator with a session seed drawn from the batch seed, and the
+ * units are generated on a fork/join pool. The same seed, configuration and
+ * size always give the same file, whatever the number of threads.
+ *
+ * Arguments are of the form --key=value:
+ *  --sessions=N    generate N sessions of NUM_SECTIONS sections, or
+ *  --trials=M      generate M trials, in units of one section each.
+ *  --seed=S        batch seed. Random if not given.
+ *  --output=FILE   file to write. Defaults to stimuli_<seed>.bin.
+ *  --threads=T     size of the fork/join pool. Defaults to the number of cores.
+ * Any other configuration property can be given too, e.g. --canvas.width=1920
+ * --canvas.height=1080 for the size of the canvas the dots are placed on.
+ *
+ * The file is big-endian. Header:
+ *  int magic "DOTS", short version, int canvas width, int canvas height,
+ *  long batch seed, int number of units, int number of trials.
+ * Then every trial, unit by unit:
+ *  int unit, short trial in unit, byte block mode, byte ControlType ordinal,
+ *  byte PlacementOutcome ordinal, long trial seed, then for each of the two
+ *  dot sets a short count followed by float x, float y, float diameter of
+ *  every dot (x and y of the top left corner).
+ *
+ * Prints the throughput in pairs per second and percentiles of the time each
+ * pair took to generate.
+ *
+ * Classes Related To:
+ *  -StimulusBatchTask.java
+ *      -Generates and encodes the units.
+ *  -PercentsMain.java
+ *      -The entry point of the game itself.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class StimulusBatchMain {
+
+    /** First four bytes of a stimulus file, "DOTS". */
+    static final int MAGIC = 0x444F5453;
+
+    /** Version of the file format. */
+    static final int VERSION = 1;
+
+    /** Trials in a session: every block of every section. */
+    static final int TRIALS_PER_SESSION = GameController.NUM_SECTIONS * GameController.NUM_ROUNDS;
+
+    /** Trials in a unit when a number of trials is generated: one section. */
+    static final int TRIALS_PER_UNIT = GameController.NUM_ROUNDS;
+
+    /** Units generated before they are written out, per thread. Bounds the memory used. */
+    static final int UNITS_PER_THREAD_IN_WINDOW = 4;
+
+    /** Percentiles of the generation time printed. */
+    static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    public static void main(String[] args) {
+        Config.setCommandLineArguments(args);
+        Properties properties = Config.getProperties();
+        String sessions = properties.getProperty("sessions");
+        String trials = properties.getProperty("trials");
+        if ((sessions == null) == (trials == null)) {
+            System.err.println("Give either --sessions=N or --trials=M.");
+            System.exit(2);
+        }
+        long seed = properties.containsKey("seed") ? Long.parseLong(properties.getProperty("seed").trim())
+                : new SplittableRandom().nextLong();
+        String output = properties.getProperty("output", "stimuli_" + seed + ".bin");
+        int threads = properties.containsKey("threads") ? Integer.parseInt(properties.getProperty("threads").trim())
+                : Runtime.getRuntime().availableProcessors();
+
+        int[] unitTrials;
+        if (sessions != null) {
+            unitTrials = new int[Integer.parseInt(sessions.trim())];
+            Arrays.fill(unitTrials, TRIALS_PER_SESSION);
+        } else {
+            int numTrials = Integer.parseInt(trials.trim());
+            unitTrials = new int[(numTrials + TRIALS_PER_UNIT - 1) / TRIALS_PER_UNIT];
+            Arrays.fill(unitTrials, TRIALS_PER_UNIT);
+            if (numTrials % TRIALS_PER_UNIT != 0) {
+                unitTrials[unitTrials.length - 1] = numTrials % TRIALS_PER_UNIT;
+            }
+        }
+        if (unitTrials.length == 0 || unitTrials[unitTrials.length - 1] <= 0) {
+            System.err.println("The number of sessions or trials must be positive.");
+            System.exit(2);
+        }
+        long[] unitSeeds = new long[unitTrials.length];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int i = 0; i < unitSeeds.length; i++) {
+            unitSeeds[i] = seeds.nextLong();
+        }
+
+        /* Every pair is logged at INFO; keep the log to warnings so threads do not queue on it. */
+        Logger.getLogger("mylog").setLevel(Level.WARNING);
+        try {
+            run(properties, seed, unitSeeds, unitTrials, output, threads);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Generate the units window by window and write them out in order.
+     */
+    private static void run(Properties properties, long seed, long[] unitSeeds, int[] unitTrials,
+            String output, int threads) throws IOException {
+        GameConfig config = new GameConfig(properties);
+        int totalTrials = 0;
+        for (int numTrials : unitTrials) {
+            totalTrials += numTrials;
+        }
+        long[] allLatencies = new long[totalTrials];
+        int numLatencies = 0;
+        long bytesWritten;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        int window = threads * UNITS_PER_THREAD_IN_WINDOW;
+        long start = System.nanoTime();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(output), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(config.getCanvasWidth());
+            out.writeInt(config.getCanvasHeight());
+            out.writeLong(seed);
+            out.writeInt(unitTrials.length);
+            out.writeInt(totalTrials);
+            bytesWritten = out.size();
+            for (int first = 0; first < unitTrials.length; first += window) {
+                int last = Math.min(unitTrials.length, first + window);
+                byte[][] encoded = new byte[last - first][];
+                long[][] latencies = new long[last - first][];
+                pool.invoke(new StimulusBatchTask(properties, unitSeeds, unitTrials,
+                        encoded, latencies, first, first, last));
+                for (int i = 0; i < encoded.length; i++) {
+                    out.write(encoded[i]);
+                    bytesWritten += encoded[i].length;
+                    System.arraycopy(latencies[i], 0, allLatencies, numLatencies, latencies[i].length);
+                    numLatencies += latencies[i].length;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1000000000.0;
+
+        Arrays.sort(allLatencies);
+        System.out.printf("Wrote %d trials in %d units to %s (%.1f KB) with %d threads.%n",
+                totalTrials, unitTrials.length, output, bytesWritten / 1024.0, threads);
+        System.out.printf("Seed %d, canvas %dx%d.%n", seed, config.getCanvasWidth(), config.getCanvasHeight());
+        System.out.printf("%.3f s, %.0f pairs/s.%n", seconds, totalTrials / seconds);
+        StringBuilder line = new StringBuilder("Generation time (ms):");
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(" p%s %.3f",
+                    percentile == Math.rint(percentile) ? Integer.toString((int) percentile) : Double.toString(percentile),
+                    percentile(allLatencies, percentile) / 1000000.0));
+        }
+        line.append(String.format(" max %.3f", allLatencies[allLatencies.length - 1] / 1000000.0));
+        System.out.println(line);
+    }
+
+    /**
+     * Nearest rank percentile of sorted values.
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+}
@@ -0,0 +1,143 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+import java.util.concurrent.RecursiveAction;
+
+import config.GameConfig;
+import controller.GameController;
+import model.DotSet;
+import model.DotsPair;
+import model.DotsPairGenerator;
+
+/**
+ * Generates a range of units of a batch on a fork/join pool, halving the
+ * range until there is one unit left. A unit is a run of trials from one
+ * DotsPairGenerator with its own session seed, going through the blocks as
+ * a session does: a new block every NUM_QUESTIONS_PER_BLOCK trials.
+ *
+ * Each unit is encoded into its own byte array on the thread that made it,
+ * so the main thread only has to write the arrays out in order.
+ *
+ * Classes Related To:
+ *  -StimulusBatchMain.java
+ *      -Splits the batch into units, runs this task and writes the results.
+ *  -DotsPairGenerator.java (model)
+ *      -Generates the pairs of a unit, on the calling thread.
+ *
+ * @author Tony Jiang
+ *
+ */
+class StimulusBatchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Properties each unit's configuration is built from, with its own session.seed. */
+    private final Properties properties;
+
+    /** Session seed of every unit of the batch. */
+    private final long[] unitSeeds;
+
+    /** Number of trials of every unit of the batch. */
+    private final int[] unitTrials;
+
+    /** Encoded trials of each unit, indexed from first. */
+    private final byte[][] encoded;
+
+    /** Nanoseconds each pair of each unit took to generate, indexed from first. */
+    private final long[][] latencies;
+
+    /** Offset of encoded and latencies in the batch. */
+    private final int first;
+
+    /** Range of units generated by this task, from inclusive, to exclusive. */
+    private final int from;
+    private final int to;
+
+    StimulusBatchTask(Properties properties, long[] unitSeeds, int[] unitTrials,
+            byte[][] encoded, long[][] latencies, int first, int from, int to) {
+        this.properties = properties;
+        this.unitSeeds = unitSeeds;
+        this.unitTrials = unitTrials;
+        this.encoded = encoded;
+        this.latencies = latencies;
+        this.first = first;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+        if (this.to - this.from == 1) {
+            this.generateUnit(this.from);
+            return;
+        }
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(new StimulusBatchTask(this.properties, this.unitSeeds, this.unitTrials,
+                        this.encoded, this.latencies, this.first, this.from, middle),
+                new StimulusBatchTask(this.properties, this.unitSeeds, this.unitTrials,
+                        this.encoded, this.latencies, this.first, middle, this.to));
+    }
+
+    /**
+     * Generate every trial of a unit and encode it.
+     * @param unit index of the unit in the batch.
+     */
+    private void generateUnit(int unit) {
+        Properties unitProperties = new Properties();
+        unitProperties.putAll(this.properties);
+        unitProperties.setProperty("session.seed", Long.toString(this.unitSeeds[unit]));
+        DotsPairGenerator dpg = new DotsPairGenerator(new GameConfig(unitProperties), false);
+
+        int numTrials = this.unitTrials[unit];
+        long[] unitLatencies = new long[numTrials];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(numTrials * 512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            int numRoundsIntoBlock = 0;
+            for (int trial = 0; trial < numTrials; trial++) {
+                if (numRoundsIntoBlock >= GameController.NUM_QUESTIONS_PER_BLOCK) {
+                    numRoundsIntoBlock = 0;
+                    dpg.changeBlock();
+                }
+                long start = System.nanoTime();
+                dpg.getNewModePair();
+                unitLatencies[trial] = System.nanoTime() - start;
+                numRoundsIntoBlock++;
+                writeTrial(out, unit, trial, dpg.getBlockMode(), dpg.getDotsPair());
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.encoded[unit - this.first] = bytes.toByteArray();
+        this.latencies[unit - this.first] = unitLatencies;
+    }
+
+    /**
+     * Write one trial in the format described in StimulusBatchMain.
+     */
+    private static void writeTrial(DataOutputStream out, int unit, int trial, int blockMode,
+            DotsPair dotsPair) throws IOException {
+        out.writeInt(unit);
+        out.writeShort(trial);
+        out.writeByte(blockMode);
+        out.writeByte(dotsPair.getControlType().ordinal());
+        out.writeByte(dotsPair.getPlacementOutcome().ordinal());
+        out.writeLong(dotsPair.getSeed());
+        writeDotSet(out, dotsPair.getDotSetOne());
+        writeDotSet(out, dotsPair.getDotSetTwo());
+    }
+
+    private static void writeDotSet(DataOutputStream out, DotSet dotSet) throws IOException {
+        out.writeShort(dotSet.getNumDotsPlaced());
+        for (int i = 0; i < dotSet.getNumDotsPlaced(); i++) {
+            out.writeFloat((float) dotSet.getX(i));
+            out.writeFloat((float) dotSet.getY(i));
+            out.writeFloat((float) dotSet.getDiameter(i));
+        }
+    }
+}
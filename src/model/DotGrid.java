@@ -0,0 +1,168 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Uniform spatial hash grid over the dots canvas. Used to check whether a
+ * new dot would overlap a dot that has already been placed without walking
+ * every placed dot.
+ *
+ * Cells are square and sized to MAX_DIAMETER + MIN_DISTANCE_BETWEEN_DOTS, so
+ * in the common case a candidate dot only has to be checked against the dots
+ * in its own cell and the eight cells around it.
+ *
+ * Classes Related To:
+ *  -DotSet.java
+ *      -Each DotSet registers its dots in a DotGrid. The second DotSet of a
+ *      DotsPair shares the grid of the first so dots of one set never overlap
+ *      dots of the other.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class DotGrid {
+
+    /** Value marking the end of a cell's list of dots. */
+    private static final int EMPTY = -1;
+
+    /** Initial capacity of the per-dot arrays. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Side length of a cell in pixels. */
+    private final double cellSize;
+
+    /** Number of columns and rows of cells. */
+    private final int numCols;
+    private final int numRows;
+
+    /** The minimum distance in pixels two dots can be from each other. */
+    private final double minDistance;
+
+    /** Index of the first dot in each cell, EMPTY if none. */
+    private final int[] cellHeads;
+
+    /** Index of the next dot in the same cell, EMPTY if last. */
+    private int[] nextInCell;
+
+    /** Centers and radii of every dot added to the grid. */
+    private double[] centerXs;
+    private double[] centerYs;
+    private double[] radii;
+
+    /** Number of dots in the grid. */
+    private int size;
+
+    /** The largest radius added so far. Widens the search if a dot is larger than the cells. */
+    private double maxRadius;
+
+    /**
+     * Constructor for DotGrid.
+     * @param width Width of the area covered in pixels.
+     * @param height Height of the area covered in pixels.
+     * @param cellSize Side length of a cell. Should be the max diameter plus minDistance.
+     * @param minDistance The minimum distance two dots can be from each other.
+     */
+    public DotGrid(double width, double height, double cellSize, double minDistance) {
+        this.cellSize = cellSize;
+        this.minDistance = minDistance;
+        this.numCols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.numRows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellHeads = new int[this.numCols * this.numRows];
+        this.nextInCell = new int[INITIAL_CAPACITY];
+        this.centerXs = new double[INITIAL_CAPACITY];
+        this.centerYs = new double[INITIAL_CAPACITY];
+        this.radii = new double[INITIAL_CAPACITY];
+        this.clear();
+    }
+
+    /**
+     * Remove every dot from the grid.
+     */
+    public void clear() {
+        Arrays.fill(this.cellHeads, EMPTY);
+        this.size = 0;
+        this.maxRadius = 0;
+    }
+
+    /**
+     * Checks if a dot overlaps (or is closer than minDistance to) any dot in the grid.
+     * @param centerX X position of the center of the dot to be checked.
+     * @param centerY Y position of the center of the dot to be checked.
+     * @param radius Radius of the dot to be checked.
+     * @return true if the dot overlaps another dot in the grid.
+     */
+    public boolean overlaps(double centerX, double centerY, double radius) {
+        int reach = (int) Math.ceil((radius + this.maxRadius + this.minDistance) / this.cellSize);
+        int col = this.colOf(centerX);
+        int row = this.rowOf(centerY);
+        int minCol = Math.max(0, col - reach);
+        int maxCol = Math.min(this.numCols - 1, col + reach);
+        int minRow = Math.max(0, row - reach);
+        int maxRow = Math.min(this.numRows - 1, row + reach);
+
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                int i = this.cellHeads[r * this.numCols + c];
+                while (i != EMPTY) {
+                    double dx = centerX - this.centerXs[i];
+                    double dy = centerY - this.centerYs[i];
+                    double minCenterDistance = radius + this.radii[i] + this.minDistance;
+                    if (dx * dx + dy * dy < minCenterDistance * minCenterDistance) {
+                        return true;
+                    }
+                    i = this.nextInCell[i];
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add a dot to the grid.
+     * @param centerX X position of the center of the dot.
+     * @param centerY Y position of the center of the dot.
+     * @param radius Radius of the dot.
+     */
+    public void add(double centerX, double centerY, double radius) {
+        if (this.size == this.centerXs.length) {
+            this.grow();
+        }
+        int cell = this.rowOf(centerY) * this.numCols + this.colOf(centerX);
+        this.centerXs[this.size] = centerX;
+        this.centerYs[this.size] = centerY;
+        this.radii[this.size] = radius;
+        this.nextInCell[this.size] = this.cellHeads[cell];
+        this.cellHeads[cell] = this.size;
+        this.size++;
+        if (radius > this.maxRadius) {
+            this.maxRadius = radius;
+        }
+    }
+
+    /**
+     * Double the capacity of the per-dot arrays.
+     */
+    private void grow() {
+        int capacity = this.centerXs.length * 2;
+        this.centerXs = Arrays.copyOf(this.centerXs, capacity);
+        this.centerYs = Arrays.copyOf(this.centerYs, capacity);
+        this.radii = Arrays.copyOf(this.radii, capacity);
+        this.nextInCell = Arrays.copyOf(this.nextInCell, capacity);
+    }
+
+    private int colOf(double x) {
+        return Math.min(this.numCols - 1, Math.max(0, (int) (x / this.cellSize)));
+    }
+
+    private int rowOf(double y) {
+        return Math.min(this.numRows - 1, Math.max(0, (int) (y / this.cellSize)));
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public double getCellSize() {
+        return this.cellSize;
+    }
+}
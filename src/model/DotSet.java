@@ -2,16 +2,22 @@ package model;
 
 import java.util.Random;
 import java.util.ArrayList;
+import java.util.Arrays;
 
-import view.SetUp;
-import config.Config;
+import config.GameConfig;
 
 /** 
  * Object to represent a set of dots.
  * 
  * Classes related to:
  *  -Coordinate.java
- *      Contains an array of Coordinates to represent dot locations.
+ *      getPositions() returns a list of Coordinates to represent dot locations.
+ *  -DotGrid.java
+ *      Spatial index used to check new dots for overlap against placed dots.
+ *  -PoissonDiskSampler.java
+ *      Source of dot centers when the placement strategy is POISSON_DISK.
+ *  -GameConfig.java
+ *      Diameters and placement limits are read from the configuration snapshot.
  * 
  * @author Tony Jiang
  * 6-25-2015
@@ -20,80 +26,126 @@ import config.Config;
 
 public class DotSet {
     
-    /** AVERAGE_RADIUS_CONTROL true if each dotset should have the same average radius. */
-    /** If TOTAL_AREA_CONTROL is true in DotsPair, then the average radius control property will not hold. */
-    static boolean AVERAGE_RADIUS_CONTROL;
-    /** The average diameter for each dot set with average radius control on */
-    static int AVERAGE_DIAMETER_ARC;
-    /** The maximum variance in diameter for each dot set with average radius control on */
-    static int MAX_DIAMETER_VARIANCE_ARC;
-
-    /** Properties without radius control on;
-     * each dot has a random diameter between MIN_DIAMETER and MAX_DIAMETER
+    /** Configuration this dotSet is generated with. With average radius control off,
+     * each dot has a random diameter between min.diameter and max.diameter
      * independent of other dots. */
-    static int MIN_DIAMETER;
-    static int MAX_DIAMETER;
+    private GameConfig config;
     
     /** Total number of dots this dotSet will have */
     private int totalNumDots;
     
-    /** Positions of every dot with respect to the canvas it is in */
-    private ArrayList<Coordinate> positions;
+    /** Number of dots added to the dotSet so far. */
+    private int numDotsPlaced;
+    
+    /** Centers of every dot with respect to the canvas it is in. Index i of each array is dot i. */
+    private double[] centerXs;
+    private double[] centerYs;
     
-    /** Respective diameters of the dots in the dotSet */
-    private ArrayList<Double> diameters;
+    /** Respective radii and diameters of the dots in the dotSet */
+    private double[] radii;
+    private double[] diameters;
     
     /** The total area of the dotSet to be calculated after painting all dots.
      * Used for TOTAL_AREA_CONTROL. */
     private double totalArea;
     
-    /** Random number generator */
-    private Random randomGenerator = new Random();
+    /** Random number generator, seeded with seed. */
+    private Random randomGenerator;
+    
+    /** Seed this dotSet was generated from. The same seed and configuration give the same dots. */
+    private long seed;
     
     /** The minimum distance in pixels two dots can be from each other. */
     static final int MIN_DISTANCE_BETWEEN_DOTS = 3;
     
+    /** Spatial index of every dot placed so far. Shared with the other DotSet of a DotsPair. */
+    private DotGrid dotGrid;
+    
+    /** Smallest diameter scale feasibleDiameterScale() will return. */
+    static final double MIN_DIAMETER_SCALE = 0.1;
+    
+    /** Relative difference from the target at which matching a rendered area stops. */
+    static final double RENDERED_AREA_TOLERANCE = 1e-9;
+    
+    /** Most corrections made when matching a rendered area. */
+    static final int MAX_RENDERED_AREA_ITERATIONS = 10;
+    
+    /** Factor every diameter is multiplied by. Less than 1 if the dots had to be shrunk to fit. */
+    private double diameterScale = 1.0;
+    
+    /** The average diameter used with average radius control on, 0 otherwise. */
+    private double arcAverageDiameter;
+    
+    /** Source of dot centers shared with the other DotSet of a DotsPair. null for random placement. */
+    private PoissonDiskSampler sampler;
+    
     /**
      * Constructor for DotSet with a specified number of total dots to contain. 
      * @param numDots total number of dots this dotSet will have.
      */
     public DotSet(int numDots) {
-        
-        loadConfig();
-        
+        this(numDots, 1.0, null, new Random().nextLong(), GameConfig.getDefault());
+    }
+    
+    /**
+     * Constructor for DotSet with a specified number of total dots to contain,
+     * a factor to shrink every diameter by, a sampler to take dot centers from,
+     * a seed for the random number generator and the configuration to generate with.
+     * @param numDots total number of dots this dotSet will have.
+     * @param diameterScale factor every diameter is multiplied by. 1 for configured diameters.
+     * @param sampler Poisson-disk sampler spaced for the largest scaled diameter,
+     *      or null to place dots by rejection sampling.
+     * @param seed seed for the random positions and diameters.
+     * @param config configuration snapshot.
+     */
+    public DotSet(int numDots, double diameterScale, PoissonDiskSampler sampler, long seed, 
+            GameConfig config) {
+        this.config = config;
+        this.setSeed(seed);
         this.setTotalNumDots(numDots);
-        this.positions = new ArrayList<Coordinate>();
-        this.diameters = new ArrayList<Double>(); 
+        this.allocateDots(numDots);
+        this.diameterScale = diameterScale;
+        this.sampler = sampler;
         
         this.totalArea = 0;
+        this.dotGrid = createDotGrid(config);
         
-        if (AVERAGE_RADIUS_CONTROL) { this.fillDots(AVERAGE_DIAMETER_ARC, MAX_DIAMETER_VARIANCE_ARC); }
-        else { this.fillDots(); }
+        if (config.isAverageRadiusControl()) { 
+            this.fillDots(config.getAverageDiameterArc(), config.getMaxDiameterVarianceArc()); 
+        } else { 
+            this.fillDots(); 
+        }
     }
     
     /**
      * Constructor for DotSet with a specified number of total dots to contain
-     * and to not overlap with another DotSet.
+     * and to not overlap with another DotSet. Uses the diameter scale, sampler 
+     * and configuration of the other DotSet.
      * @param numDots total number of dots this dotSet will have.
      * @param otherDotSet other DotSet to not overlap with.
      */
     public DotSet(int numDots, DotSet otherDotSet) {
-        loadConfig();
-        this.setTotalNumDots(numDots);
-        this.positions = new ArrayList<Coordinate>();
-        this.diameters = new ArrayList<Double>(); 
-        this.totalArea = 0;
-        this.fillDots(otherDotSet);
+        this(numDots, otherDotSet, new Random().nextLong());
     }
     
-    private void loadConfig() {
-        new Config();
-        AVERAGE_RADIUS_CONTROL = Config.getPropertyBoolean("average.radius.control");
-        AVERAGE_DIAMETER_ARC = Config.getPropertyInt("average.diameter.arc");
-        MAX_DIAMETER_VARIANCE_ARC = Config.getPropertyInt("max.diameter.variance.arc");
-        
-        MIN_DIAMETER = Config.getPropertyInt("min.diameter");
-        MAX_DIAMETER = Config.getPropertyInt("max.diameter");
+    /**
+     * Constructor for DotSet with a specified number of total dots to contain,
+     * to not overlap with another DotSet, and a seed for the random number generator.
+     * Uses the diameter scale, sampler and configuration of the other DotSet.
+     * @param numDots total number of dots this dotSet will have.
+     * @param otherDotSet other DotSet to not overlap with.
+     * @param seed seed for the random positions and diameters.
+     */
+    public DotSet(int numDots, DotSet otherDotSet, long seed) {
+        this.config = otherDotSet.config;
+        this.setSeed(seed);
+        this.setTotalNumDots(numDots);
+        this.allocateDots(numDots);
+        this.diameterScale = otherDotSet.diameterScale;
+        this.sampler = otherDotSet.sampler;
+        this.totalArea = 0;
+        this.dotGrid = otherDotSet.dotGrid;
+        this.fillDots();
     }
     
     /**
@@ -104,100 +156,267 @@ public class DotSet {
      * @param maxDiameterVariance maximum variance allowed in the diameter.
      */
     public DotSet(int numDots, double averageDiameter, int maxDiameterVariance) {
+        this.config = GameConfig.getDefault();
+        this.setSeed(new Random().nextLong());
         this.setTotalNumDots(numDots);
-        this.positions = new ArrayList<Coordinate>();
-        this.diameters = new ArrayList<Double>(); 
+        this.allocateDots(numDots);
+        this.dotGrid = createDotGrid(this.config);
         
         this.fillDots(averageDiameter, maxDiameterVariance); 
     }
     
     /**
-     * Populate the dotSet with dots that have random diameters between a default MIN_DIAMETER, MAX_DIAMETER.
+     * Allocate storage for a number of dots.
+     * @param numDots number of dots to make room for.
+     */
+    private void allocateDots(int numDots) {
+        this.numDotsPlaced = 0;
+        this.centerXs = new double[numDots];
+        this.centerYs = new double[numDots];
+        this.radii = new double[numDots];
+        this.diameters = new double[numDots];
+    }
+    
+    /**
+     * Create a grid covering the dots canvas with cells sized to the largest
+     * diameter a dot may have plus MIN_DISTANCE_BETWEEN_DOTS.
+     * @param config configuration snapshot.
+     * @return an empty DotGrid.
+     */
+    private static DotGrid createDotGrid(GameConfig config) {
+        int largestDiameter = Math.max(config.getMaxDiameter(), 
+                config.getAverageDiameterArc() + config.getMaxDiameterVarianceArc());
+        return new DotGrid(config.getCanvasWidth(), config.getCanvasHeight(),
+                largestDiameter + MIN_DISTANCE_BETWEEN_DOTS, MIN_DISTANCE_BETWEEN_DOTS);
+    }
+    
+    /**
+     * Estimate the fraction of the canvas that a number of dots would cover, counting
+     * half of MIN_DISTANCE_BETWEEN_DOTS of padding around each dot.
+     * @param numDots number of dots in both dot sets of a pair.
+     * @param diameterScale factor every diameter is multiplied by.
+     * @param config configuration snapshot.
+     * @return estimated packing density, between 0 and (possibly greater than) 1.
+     */
+    static double estimatePackingDensity(int numDots, double diameterScale, GameConfig config) {
+        double paddedRadius = (averageDiameter(config) * diameterScale + MIN_DISTANCE_BETWEEN_DOTS) / 2;
+        double canvasArea = (double) config.getCanvasWidth() * config.getCanvasHeight();
+        return numDots * Math.PI * paddedRadius * paddedRadius / canvasArea;
+    }
+    
+    /**
+     * Find the largest diameter scale (at most 1) for which the packing density of a
+     * number of dots stays under max.packing.density, so random placement can finish
+     * within max.attempts.per.dot.
+     * @param numDots number of dots in both dot sets of a pair.
+     * @param config configuration snapshot.
+     * @return diameter scale to generate with.
+     */
+    static double feasibleDiameterScale(int numDots, GameConfig config) {
+        double maxPackingDensity = config.getMaxPackingDensity();
+        if (estimatePackingDensity(numDots, 1.0, config) <= maxPackingDensity) {
+            return 1.0;
+        }
+        double canvasArea = (double) config.getCanvasWidth() * config.getCanvasHeight();
+        double maxPaddedRadius = Math.sqrt(maxPackingDensity * canvasArea / (numDots * Math.PI));
+        double scale = (2 * maxPaddedRadius - MIN_DISTANCE_BETWEEN_DOTS) / averageDiameter(config);
+        return Math.max(MIN_DIAMETER_SCALE, Math.min(1.0, scale));
+    }
+    
+    /**
+     * The largest diameter a dot may be generated with at a diameter scale of 1.
+     * @param config configuration snapshot.
+     */
+    static int largestDiameter(GameConfig config) {
+        if (config.isAverageRadiusControl()) {
+            return config.getAverageDiameterArc() + config.getMaxDiameterVarianceArc();
+        }
+        return config.getMaxDiameter();
+    }
+    
+    /**
+     * The average diameter a dot is generated with at a diameter scale of 1.
+     * @param config configuration snapshot.
+     */
+    private static double averageDiameter(GameConfig config) {
+        if (config.isAverageRadiusControl()) {
+            return config.getAverageDiameterArc();
+        }
+        return (config.getMinDiameter() + config.getMaxDiameter()) / 2.0;
+    }
+    
+    /**
+     * Random x position for the top left corner of a dot.
+     */
+    private int randomX() {
+        return randomGenerator.nextInt(Math.max(1, this.config.getCanvasWidth() - this.scaledMaxDiameter()));
+    }
+    
+    /**
+     * Random y position for the top left corner of a dot.
+     */
+    private int randomY() {
+        return randomGenerator.nextInt(Math.max(1, this.config.getCanvasHeight() - this.scaledMaxDiameter()));
+    }
+    
+    /**
+     * Random diameter between min.diameter and max.diameter, multiplied by the diameter scale.
+     */
+    private double randomDiameter() {
+        int minDiameter = this.config.getMinDiameter();
+        return (randomGenerator.nextInt(this.config.getMaxDiameter() - minDiameter) + minDiameter) 
+                * this.diameterScale;
+    }
+    
+    private int scaledMaxDiameter() {
+        return (int) Math.ceil(this.config.getMaxDiameter() * this.diameterScale);
+    }
+    
+    /**
+     * Populate the dotSet with dots that have random diameters between min.diameter and max.diameter.
+     * Gives up if max.attempts.per.dot positions in a row overlap other dots,
+     * or if the sampler runs out of points; see isFilled().
      */
     private void fillDots() {
-        int i = 0;
-        while (i < this.totalNumDots) {
-            int x = randomGenerator.nextInt(SetUp.DOTS_CANVAS_WIDTH - MAX_DIAMETER);
-            int y = randomGenerator.nextInt(SetUp.DOTS_CANVAS_HEIGHT - MAX_DIAMETER);
-            int diameter = randomGenerator.nextInt(MAX_DIAMETER - MIN_DIAMETER) + MIN_DIAMETER; 
+        if (this.sampler != null) {
+            while (this.numDotsPlaced < this.totalNumDots) {
+                if (!this.addDotFromSampler(this.randomDiameter())) {
+                    return;
+                }
+            }
+            return;
+        }
+        int maxAttempts = this.config.getMaxAttemptsPerDot();
+        int attempts = 0;
+        while (this.numDotsPlaced < this.totalNumDots) {
+            if (attempts >= maxAttempts) {
+                return;
+            }
+            int x = this.randomX();
+            int y = this.randomY();
+            double diameter = this.randomDiameter();
+            attempts++;
             
             if (!overLapsOther(x, y, diameter)) {
                 this.addDotAndDiameterAndArea(x, y, diameter);
-                i++;
+                attempts = 0;
             }
         }
     }
     
     /**
-     * Populate the dotSet with dots that have an average diameter and max variance.
+     * Populate the dotSet with dots that have an average diameter and max variance,
+     * both multiplied by the diameter scale.
+     * Gives up if a dot cannot be placed within max.attempts.per.dot; see isFilled().
      * @param avgDiameter average diameter
      * @param maxDiameterVariance max variance in diameter.
      */
     private void fillDots(double avgDiameter, int maxDiameterVariance) {
-        int dotsFilled = 0;
+        this.arcAverageDiameter = avgDiameter * this.diameterScale;
         
-        while (dotsFilled < this.totalNumDots) {
-            
-            int x = randomGenerator.nextInt(SetUp.DOTS_CANVAS_WIDTH - MAX_DIAMETER);
-            int y = randomGenerator.nextInt(SetUp.DOTS_CANVAS_HEIGHT - MAX_DIAMETER);
+        while (this.numDotsPlaced < this.totalNumDots) {
             
-            if (this.totalNumDots - dotsFilled >= 2) {
+            if (this.totalNumDots - this.numDotsPlaced >= 2) {
                 int diameterVariance = randomGenerator.nextInt(maxDiameterVariance) + 1;
                 
-                double diameterGreater = avgDiameter + diameterVariance;
-                double diameterLower = avgDiameter - diameterVariance;
+                double diameterGreater = (avgDiameter + diameterVariance) * this.diameterScale;
+                double diameterLower = (avgDiameter - diameterVariance) * this.diameterScale;
                 
-                this.addDotNoOverlap(x, y, diameterGreater);
-                dotsFilled++;
-                
-                x = randomGenerator.nextInt(SetUp.DOTS_CANVAS_WIDTH - MAX_DIAMETER); 
-                y = randomGenerator.nextInt(SetUp.DOTS_CANVAS_HEIGHT - MAX_DIAMETER);
+                if (!this.placeDot(diameterGreater)) {
+                    return;
+                }
                 
-                this.addDotNoOverlap(x, y, diameterLower);
-                dotsFilled++;
+                if (!this.placeDot(diameterLower)) {
+                    return;
+                }
                 
             } else {
-                double diameter = avgDiameter;
+                double diameter = avgDiameter * this.diameterScale;
                 
-                this.addDotNoOverlap(x, y, diameter);
-                dotsFilled++;
+                if (!this.placeDot(diameter)) {
+                    return;
+                }
             }
         }
     }
     
-    private void fillDots(DotSet otherDotSet) {
-        int i = 0;
-        while (i < this.totalNumDots) {
-            int x = randomGenerator.nextInt(SetUp.DOTS_CANVAS_WIDTH - MAX_DIAMETER);
-            int y = randomGenerator.nextInt(SetUp.DOTS_CANVAS_HEIGHT - MAX_DIAMETER);
-            int diameter = randomGenerator.nextInt(MAX_DIAMETER - MIN_DIAMETER) + MIN_DIAMETER; 
-            
-            if (!overLapsOther(x, y, diameter) 
-                    && !overLapsOtherInOtherDotSet(x, y, diameter, otherDotSet)) {
-                    this.addDotAndDiameterAndArea(x, y, diameter);
-                    i++;
-                }
-            }
+    /**
+     * Place the dots that could not be placed without overlap at random positions,
+     * ignoring overlap. Last resort so that the dotSet always has totalNumDots dots.
+     */
+    public void fillRemainingDotsAllowingOverlap() {
+        while (this.numDotsPlaced < this.totalNumDots) {
+            double diameter = this.arcAverageDiameter > 0 ? this.arcAverageDiameter : this.randomDiameter();
+            this.addDotAndDiameterAndArea(this.randomX(), this.randomY(), diameter);
+        }
+    }
+    
+    /**
+     * Rebuild the grid from the dots of this dotSet only and stop taking centers
+     * from the sampler. The grid may still hold the dots of an abandoned DotSet
+     * that shared it, and the sampler may be drained; a DotSet created from this
+     * one afterwards only avoids this dotSet's dots, by rejection sampling.
+     */
+    void resetPlacement() {
+        this.dotGrid.clear();
+        for (int i = 0; i < this.numDotsPlaced; i++) {
+            this.dotGrid.add(this.centerXs[i], this.centerYs[i], this.radii[i]);
         }
+        this.sampler = null;
+    }
     
+    /**
+     * Place a dot of a given diameter using the placement strategy of this dotSet.
+     * @param diameter The diameter of the dot.
+     * @return false if the dot could not be placed.
+     */
+    private boolean placeDot(double diameter) {
+        if (this.sampler != null) {
+            return this.addDotFromSampler(diameter);
+        }
+        return this.addDotNoOverlap(this.randomX(), this.randomY(), diameter);
+    }
+    
+    /**
+     * Add a dot centered on the next point of the sampler. The sampler's spacing
+     * already keeps it MIN_DISTANCE_BETWEEN_DOTS from every other dot.
+     * @param diameter The diameter of the dot.
+     * @return false if the sampler has no points left.
+     */
+    private boolean addDotFromSampler(double diameter) {
+        if (!this.sampler.hasNext()) {
+            return false;
+        }
+        int point = this.sampler.next();
+        this.addDot(this.sampler.getX(point), this.sampler.getY(point), diameter);
+        return true;
+    }
     
-
     /**
      * Add a dot to the dotSet without overlapping another dot.
      * @param x X coordinate to attempt to add dot in.
      * @param y Y coordinate to attempt to add dot in.
      * @param diameter The diameter of the dot. 
+     * @return false if no position was found within max.attempts.per.dot.
      */
-    private void addDotNoOverlap(int x, int y, double diameter) {
+    private boolean addDotNoOverlap(int x, int y, double diameter) {
+        int maxAttempts = this.config.getMaxAttemptsPerDot();
+        int attempts = 1;
         while (overLapsOther(x, y, diameter)) {
-            x = randomGenerator.nextInt(SetUp.DOTS_CANVAS_WIDTH - MAX_DIAMETER); 
-            y = randomGenerator.nextInt(SetUp.DOTS_CANVAS_HEIGHT - MAX_DIAMETER);
+            if (attempts >= maxAttempts) {
+                return false;
+            }
+            x = this.randomX(); 
+            y = this.randomY();
+            attempts++;
         }
         this.addDotAndDiameterAndArea(x, y, diameter);
+        return true;
     }
 
     /**
-     * Checks if a dot overlaps another dot in the dotSet.
+     * Checks if a dot overlaps another dot in the dotSet, or in the other
+     * dotSet of the pair if the grid is shared.
      * @param x X position of the dot to be checked.
      * @param y Y position of the dot to be checked.
      * @param diameter Diameter of the dot to be checked.
@@ -205,47 +424,7 @@ public class DotSet {
      */
     private boolean overLapsOther(int x, int y, double diameter) {
         double radius = diameter / 2.0;
-        double centerX = x + radius;
-        double centerY = y + radius;
-
-        for (int i = 0; i < positions.size(); i++) {
-            Coordinate otherPosition = positions.get(i);
-            double otherDiameter = diameters.get(i);
-            double otherRadius = otherDiameter/2;
-            double otherCenterX = otherPosition.x + otherRadius;
-            double otherCenterY = otherPosition.y + otherRadius;
-
-            double dx = centerX - otherCenterX;
-            double dy = centerY - otherCenterY;
-            double distance = Math.hypot(dx, dy);
-            if (distance < radius + otherRadius + MIN_DISTANCE_BETWEEN_DOTS) {
-                return true;
-            }
-        }
-        return false;
-    }
-    
-    private boolean overLapsOtherInOtherDotSet(int x, int y, int diameter,
-            DotSet otherDotSet) {
-        double radius = diameter / 2.0;
-        double centerX = x + radius;
-        double centerY = y + radius;
-
-        for (int i = 0; i < otherDotSet.positions.size(); i++) {
-            Coordinate otherPosition = otherDotSet.positions.get(i);
-            double otherDiameter = otherDotSet.diameters.get(i);
-            double otherRadius = otherDiameter/2;
-            double otherCenterX = otherPosition.x + otherRadius;
-            double otherCenterY = otherPosition.y + otherRadius;
-
-            double dx = centerX - otherCenterX;
-            double dy = centerY - otherCenterY;
-            double distance = Math.hypot(dx, dy);
-            if (distance < radius + otherRadius + MIN_DISTANCE_BETWEEN_DOTS) {
-                return true;
-            }
-        }
-        return false;
+        return this.dotGrid.overlaps(x + radius, y + radius, radius);
     }
     
     /**
@@ -257,9 +436,39 @@ public class DotSet {
      * @param diameter Diameter of the dot
      */
     public void addDotAndDiameterAndArea(int x, int y, double diameter) {
-        this.positions.add(new Coordinate(x, y));
-        this.diameters.add(diameter);
-        this.totalArea += Math.PI * Math.pow((diameter / 2), 2);
+        this.addDot(x + diameter / 2, y + diameter / 2, diameter);
+    }
+    
+    /**
+     * Add a dot to the dotSet by its center and update the total area.
+     * @param centerX X coordinate of the center of the dot
+     * @param centerY Y coordinate of the center of the dot
+     * @param diameter Diameter of the dot
+     */
+    private void addDot(double centerX, double centerY, double diameter) {
+        if (this.numDotsPlaced == this.diameters.length) {
+            this.growDots();
+        }
+        double radius = diameter / 2;
+        int i = this.numDotsPlaced;
+        this.centerXs[i] = centerX;
+        this.centerYs[i] = centerY;
+        this.radii[i] = radius;
+        this.diameters[i] = diameter;
+        this.numDotsPlaced++;
+        this.dotGrid.add(centerX, centerY, radius);
+        this.totalArea += Math.PI * radius * radius;
+    }
+    
+    /**
+     * Make room for more dots than the dotSet was created with.
+     */
+    private void growDots() {
+        int capacity = Math.max(1, this.diameters.length * 2);
+        this.centerXs = Arrays.copyOf(this.centerXs, capacity);
+        this.centerYs = Arrays.copyOf(this.centerYs, capacity);
+        this.radii = Arrays.copyOf(this.radii, capacity);
+        this.diameters = Arrays.copyOf(this.diameters, capacity);
     }
     
     /**
@@ -275,13 +484,7 @@ public class DotSet {
     public void matchArea(double otherTotalArea) {
         
         double resizeRatio = Math.sqrt(otherTotalArea / this.getTotalArea());
-        
-        for (int diameterIndex = 0; diameterIndex < this.totalNumDots; diameterIndex++) {
-            double diameterToScale = this.diameters.get(diameterIndex);
-            double scaledDiameter = diameterToScale * resizeRatio;
-            this.diameters.set(diameterIndex, scaledDiameter);
-        }
-        this.recalcArea();
+        this.scaleDiameters(resizeRatio);
     }
     
     /**
@@ -295,13 +498,83 @@ public class DotSet {
     public void inverseMatchArea(double otherTotalArea) {
         
         double inverseResizeRatio = Math.sqrt(this.getTotalArea() / otherTotalArea);
-        
-        for (int diameterIndex = 0; diameterIndex < this.totalNumDots; diameterIndex++) {
-            double diameterToScale = this.diameters.get(diameterIndex);
-            double scaledDiameter = diameterToScale * inverseResizeRatio;
-            this.diameters.set(diameterIndex, scaledDiameter);
+        this.scaleDiameters(inverseResizeRatio);
+    }
+
+    /**
+     * The area the dots of this dotSet cover on screen.
+     * @param table rendered area of a dot by diameter.
+     * @return the rendered area in pixels.
+     */
+    public double getRenderedArea(RenderedAreaTable table) {
+        return this.renderedArea(table, 1.0);
+    }
+    
+    /**
+     * Same as matchArea(), but matching the area the dots cover on screen instead of pi * r^2.
+     * @param otherRenderedArea The rendered area of the other dotSet to be matched.
+     * @param table rendered area of a dot by diameter.
+     */
+    public void matchRenderedArea(double otherRenderedArea, RenderedAreaTable table) {
+        this.scaleDiameters(this.ratioForRenderedArea(otherRenderedArea, table));
+    }
+    
+    /**
+     * Same as inverseMatchArea(), but with the areas the dots cover on screen instead of pi * r^2.
+     * @param otherRenderedArea The rendered area of the other dotSet.
+     * @param table rendered area of a dot by diameter.
+     */
+    public void inverseMatchRenderedArea(double otherRenderedArea, RenderedAreaTable table) {
+        double renderedArea = this.getRenderedArea(table);
+        this.scaleDiameters(this.ratioForRenderedArea(renderedArea * renderedArea / otherRenderedArea, table));
+    }
+    
+    /**
+     * Find the ratio to scale every diameter by for the dots to cover an area on screen.
+     * Starts from the ratio for pi * r^2 and corrects it with table lookups until the
+     * rendered area is within RENDERED_AREA_TOLERANCE of the target.
+     * @param targetArea rendered area wanted, in pixels.
+     * @param table rendered area of a dot by diameter.
+     * @return the ratio.
+     */
+    private double ratioForRenderedArea(double targetArea, RenderedAreaTable table) {
+        double ratio = Math.sqrt(targetArea / this.getRenderedArea(table));
+        for (int i = 0; i < MAX_RENDERED_AREA_ITERATIONS; i++) {
+            double correction = targetArea / this.renderedArea(table, ratio);
+            if (Math.abs(correction - 1) < RENDERED_AREA_TOLERANCE) {
+                break;
+            }
+            ratio *= Math.sqrt(correction);
+        }
+        return ratio;
+    }
+    
+    /**
+     * The area the dots would cover on screen with every diameter multiplied by a ratio.
+     */
+    private double renderedArea(RenderedAreaTable table, double ratio) {
+        double area = 0;
+        for (int i = 0; i < this.numDotsPlaced; i++) {
+            area += table.area(this.diameters[i] * ratio);
+        }
+        return area;
+    }
+
+    /**
+     * Multiply every diameter by a ratio and recompute the total area.
+     * The top left corner of each dot stays where it was painted.
+     * @param ratio the ratio to scale by.
+     */
+    private void scaleDiameters(double ratio) {
+        this.totalArea = 0;
+        for (int i = 0; i < this.numDotsPlaced; i++) {
+            double scaledRadius = this.radii[i] * ratio;
+            this.centerXs[i] += scaledRadius - this.radii[i];
+            this.centerYs[i] += scaledRadius - this.radii[i];
+            this.radii[i] = scaledRadius;
+            this.diameters[i] = scaledRadius * 2;
+            this.totalArea += Math.PI * scaledRadius * scaledRadius;
         }
-        this.recalcArea();
     }
 
     /**
@@ -309,17 +582,59 @@ public class DotSet {
      */
     private void recalcArea() {
         this.totalArea = 0;
-        for (Double diameter : this.diameters) {
-            totalArea += Math.PI * Math.pow((diameter / 2), 2);
+        for (int i = 0; i < this.numDotsPlaced; i++) {
+            this.totalArea += Math.PI * this.radii[i] * this.radii[i];
         }
     }
     
+    /** X coordinate of the top left corner of dot i. */
+    public double getX(int i) {
+        return this.centerXs[i] - this.radii[i];
+    }
+    
+    /** Y coordinate of the top left corner of dot i. */
+    public double getY(int i) {
+        return this.centerYs[i] - this.radii[i];
+    }
+    
+    public double getCenterX(int i) {
+        return this.centerXs[i];
+    }
+    
+    public double getCenterY(int i) {
+        return this.centerYs[i];
+    }
+    
+    public double getRadius(int i) {
+        return this.radii[i];
+    }
+    
+    public double getDiameter(int i) {
+        return this.diameters[i];
+    }
+    
+    /**
+     * Positions (top left corners) of every dot. Builds a new list on every call,
+     * use getX(i) and getY(i) in loops.
+     * @return list of the positions of the dots.
+     */
     public ArrayList<Coordinate> getPositions() {
+        ArrayList<Coordinate> positions = new ArrayList<Coordinate>(this.numDotsPlaced);
+        for (int i = 0; i < this.numDotsPlaced; i++) {
+            positions.add(new Coordinate((int) Math.round(this.getX(i)), (int) Math.round(this.getY(i))));
+        }
         return positions;
     }
 
+    /**
+     * Move the dots so that their top left corners are at the given positions.
+     * @param positions new positions, one for each dot.
+     */
     public void setPositions(ArrayList<Coordinate> positions) {
-        this.positions = positions;
+        for (int i = 0; i < this.numDotsPlaced; i++) {
+            this.centerXs[i] = positions.get(i).x + this.radii[i];
+            this.centerYs[i] = positions.get(i).y + this.radii[i];
+        }
     }
     
     public double getTotalArea() {
@@ -329,13 +644,69 @@ public class DotSet {
     public int getTotalNumDots() {
         return this.totalNumDots;
     }
+    
+    /**
+     * @return number of dots placed, less than getTotalNumDots() if not every dot fit.
+     */
+    public int getNumDotsPlaced() {
+        return this.numDotsPlaced;
+    }
 
+    /**
+     * Diameters of every dot. Builds a new list on every call,
+     * use getDiameter(i) in loops.
+     * @return list of the diameters of the dots.
+     */
     public ArrayList<Double> getDiameters() {
-        return diameters;
+        ArrayList<Double> diameterList = new ArrayList<Double>(this.numDotsPlaced);
+        for (int i = 0; i < this.numDotsPlaced; i++) {
+            diameterList.add(this.diameters[i]);
+        }
+        return diameterList;
     }
 
+    /**
+     * Resize the dots, keeping their top left corners in place.
+     * @param diameters new diameters, one for each dot.
+     */
     public void setDiameters(ArrayList<Double> diameters) {
-        this.diameters = diameters;
+        for (int i = 0; i < this.numDotsPlaced; i++) {
+            double x = this.getX(i);
+            double y = this.getY(i);
+            this.radii[i] = diameters.get(i) / 2;
+            this.diameters[i] = diameters.get(i);
+            this.centerXs[i] = x + this.radii[i];
+            this.centerYs[i] = y + this.radii[i];
+        }
+        this.recalcArea();
+    }
+
+    /**
+     * @return true if every dot could be placed without overlapping another dot.
+     */
+    public boolean isFilled() {
+        return this.numDotsPlaced == this.totalNumDots;
+    }
+    
+    public double getDiameterScale() {
+        return this.diameterScale;
+    }
+    
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    public GameConfig getConfig() {
+        return this.config;
+    }
+    
+    /**
+     * Set the seed and reset the random number generator with it.
+     * @param seed the new seed.
+     */
+    private void setSeed(long seed) {
+        this.seed = seed;
+        this.randomGenerator = new Random(seed);
     }
 
     public void setTotalNumDots(int totalNumDots) {
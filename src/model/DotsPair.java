@@ -1,8 +1,10 @@
 package model;
 
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
 
-import config.Config;
+import config.GameConfig;
 
 /** 
  * Object to represent two sets of dots.
@@ -17,6 +19,18 @@ import config.Config;
  */
 public class DotsPair {
     
+    /** Logger */
+    private static Logger logger = Logger.getLogger("mylog");
+    
+    /** Number of times to regenerate the pair at one diameter scale before shrinking. */
+    static final int MAX_RESTARTS = 3;
+    
+    /** Number of times to shrink the diameters before allowing overlap. */
+    static final int MAX_SHRINKS = 5;
+    
+    /** Factor the diameter scale is multiplied by on each shrink. */
+    static final double SHRINK_FACTOR = 0.85;
+    
     /** The first letter. */
     private DotSet dotSetOne;
     
@@ -25,15 +39,31 @@ public class DotsPair {
     
     /** The control type of this pair */
     private ControlType controlType;
+    
+    /** How the dots of this pair were placed. */
+    private PlacementOutcome placementOutcome;
+    
+    /** Number of times the pair was generated before every dot could be placed. */
+    private int placementRounds;
 
-    /** Boolean variables for control type modes. */
-    private static boolean TOTAL_AREA_CONTROL_ON;
-    private static boolean EQUAL_AREAS_ONLY;
-    private static boolean INVERSE_AREAS_ONLY;
-    private static boolean AVERAGE_RADIUS_CONTROL;
+    /** Configuration this pair is generated with, including the control type modes. */
+    private GameConfig config;
+    
+    /** How dot positions are chosen for this pair. */
+    private PlacementStrategy placementStrategy;
     
     /** Random number generator. */
-    private Random randomGenerator = new Random(); 
+    private Random randomGenerator; 
+    
+    /** Seed this pair was generated from. The same seed, numbers of dots, control type
+     * and configuration give the same pair. */
+    private long seed;
+    
+    /** Source of seeds for the DotSets of this pair. */
+    private SplittableRandom dotSetSeeds;
+    
+    /** Rendered area of a dot by diameter. If set, areas are matched as rendered instead of as pi * r^2. */
+    private RenderedAreaTable renderedAreas;
     
     /** 
      * Constructor for DotsPair.
@@ -43,28 +73,128 @@ public class DotsPair {
      *      (Whether the dot sets should have equal areas, inverse areas, or equal average radii.)
      */
     public DotsPair(int numDotsOne, int numDotsTwo, ControlType controlType) {
-        loadConfig();
+        this(numDotsOne, numDotsTwo, controlType, null);
+    }
+    
+    /** 
+     * Constructor for DotsPair with a specified placement strategy.
+     * @param numDotsOne The number of dots in the first set.
+     * @param numDotsTwo The number of dots in the second set.
+     * @param controlType The control type of this dots pair.
+     *      (Whether the dot sets should have equal areas, inverse areas, or equal average radii.)
+     * @param placementStrategy How dot positions are chosen. null to use placement.strategy.
+     */
+    public DotsPair(int numDotsOne, int numDotsTwo, ControlType controlType, 
+            PlacementStrategy placementStrategy) {
+        this(numDotsOne, numDotsTwo, controlType, placementStrategy, new Random().nextLong(), 
+                GameConfig.getDefault());
+    }
+    
+    /** 
+     * Constructor for DotsPair with a specified placement strategy and seed.
+     * @param numDotsOne The number of dots in the first set.
+     * @param numDotsTwo The number of dots in the second set.
+     * @param controlType The control type of this dots pair.
+     *      (Whether the dot sets should have equal areas, inverse areas, or equal average radii.)
+     * @param placementStrategy How dot positions are chosen. null to use placement.strategy.
+     * @param seed Seed every random choice made for this pair is derived from.
+     * @param config Configuration snapshot to generate with.
+     */
+    public DotsPair(int numDotsOne, int numDotsTwo, ControlType controlType, 
+            PlacementStrategy placementStrategy, long seed, GameConfig config) {
+        this(numDotsOne, numDotsTwo, controlType, placementStrategy, seed, config, null);
+    }
+    
+    /** 
+     * Constructor for DotsPair matching the areas of the dot sets as they are rendered.
+     * @param numDotsOne The number of dots in the first set.
+     * @param numDotsTwo The number of dots in the second set.
+     * @param controlType The control type of this dots pair.
+     *      (Whether the dot sets should have equal areas, inverse areas, or equal average radii.)
+     * @param placementStrategy How dot positions are chosen. null to use placement.strategy.
+     * @param seed Seed every random choice made for this pair is derived from.
+     * @param config Configuration snapshot to generate with.
+     * @param renderedAreas Rendered area of a dot by diameter. null to match pi * r^2.
+     */
+    public DotsPair(int numDotsOne, int numDotsTwo, ControlType controlType, 
+            PlacementStrategy placementStrategy, long seed, GameConfig config, 
+            RenderedAreaTable renderedAreas) {
+        this.config = config;
+        this.renderedAreas = renderedAreas;
+        this.seed = seed;
+        this.dotSetSeeds = new SplittableRandom(seed);
+        this.randomGenerator = new Random(this.dotSetSeeds.nextLong());
+        this.placementStrategy = placementStrategy != null ? placementStrategy 
+                : config.getPlacementStrategy();
 
-        this.dotSetOne = new DotSet(numDotsOne);
-        this.dotSetTwo = new DotSet(numDotsTwo, this.dotSetOne);
+        this.generateDotSets(numDotsOne, numDotsTwo);
         
         this.controlType = controlType;
         
         this.defineControlType();
         
-        if (TOTAL_AREA_CONTROL_ON) {
+        if (config.isTotalAreaControlOn()) {
             this.scaleAreas();
         }
     }
     
-    /** Load configuration settings. */
-    private void loadConfig() {
-        new Config();
-        
-        TOTAL_AREA_CONTROL_ON = Config.getPropertyBoolean("total.area.control.on");
-        EQUAL_AREAS_ONLY = Config.getPropertyBoolean("equal.areas.only");
-        INVERSE_AREAS_ONLY = Config.getPropertyBoolean("inverse.areas.only");
-        AVERAGE_RADIUS_CONTROL = Config.getPropertyBoolean("average.radius.control");
+    /**
+     * Generate both dot sets within a bounded amount of work.
+     * 
+     * Diameters are shrunk up front if the estimated packing density is too high.
+     * If a dot cannot be placed, the pair is regenerated up to MAX_RESTARTS times,
+     * then the diameters are shrunk by SHRINK_FACTOR, up to MAX_SHRINKS times.
+     * If that still fails, the remaining dots are placed allowing overlap, after
+     * dropping the dots of the abandoned second set from the shared grid.
+     * 
+     * @param numDotsOne The number of dots in the first set.
+     * @param numDotsTwo The number of dots in the second set.
+     */
+    private void generateDotSets(int numDotsOne, int numDotsTwo) {
+        double diameterScale = DotSet.feasibleDiameterScale(numDotsOne + numDotsTwo, this.config);
+        this.placementRounds = 0;
+        for (int shrinks = 0; shrinks <= MAX_SHRINKS; shrinks++) {
+            for (int restarts = 0; restarts < MAX_RESTARTS; restarts++) {
+                this.placementRounds++;
+                this.dotSetOne = new DotSet(numDotsOne, diameterScale, 
+                        this.createSampler(diameterScale), this.dotSetSeeds.nextLong(), this.config);
+                if (!this.dotSetOne.isFilled()) {
+                    continue;
+                }
+                this.dotSetTwo = new DotSet(numDotsTwo, this.dotSetOne, this.dotSetSeeds.nextLong());
+                if (this.dotSetTwo.isFilled()) {
+                    this.placementOutcome = diameterScale < 1.0 ? PlacementOutcome.SHRUNK
+                            : this.placementRounds > 1 ? PlacementOutcome.RESTARTED
+                            : PlacementOutcome.PLACED;
+                    return;
+                }
+            }
+            diameterScale *= SHRINK_FACTOR;
+        }
+        this.dotSetOne.resetPlacement();
+        this.dotSetOne.fillRemainingDotsAllowingOverlap();
+        this.dotSetTwo = new DotSet(numDotsTwo, this.dotSetOne, this.dotSetSeeds.nextLong());
+        this.dotSetTwo.fillRemainingDotsAllowingOverlap();
+        this.placementOutcome = PlacementOutcome.OVERLAPPING;
+        logger.warning("Could not place " + numDotsOne + " and " + numDotsTwo 
+                + " dots without overlap after " + this.placementRounds + " rounds.");
+    }
+    
+    /**
+     * Create a Poisson-disk sampler covering the dots canvas, spaced so that dots of any
+     * diameter centered on its points are at least MIN_DISTANCE_BETWEEN_DOTS apart.
+     * @param diameterScale factor every diameter is multiplied by.
+     * @return the sampler, or null if the placement strategy is not POISSON_DISK.
+     */
+    private PoissonDiskSampler createSampler(double diameterScale) {
+        if (this.placementStrategy != PlacementStrategy.POISSON_DISK) {
+            return null;
+        }
+        double largestDiameter = DotSet.largestDiameter(this.config) * diameterScale;
+        double margin = largestDiameter / 2;
+        return new PoissonDiskSampler(margin, margin, 
+                this.config.getCanvasWidth() - largestDiameter, this.config.getCanvasHeight() - largestDiameter,
+                largestDiameter + DotSet.MIN_DISTANCE_BETWEEN_DOTS, this.randomGenerator);
     }
     
     /**
@@ -95,12 +225,12 @@ public class DotsPair {
     
     /** Used only if specified in configuration. */
     private void defineControlType() {
-        if (AVERAGE_RADIUS_CONTROL) {
+        if (this.config.isAverageRadiusControl()) {
             this.controlType = ControlType.RADIUS_AVERAGE_EQUAL;
-        } else if (TOTAL_AREA_CONTROL_ON) {
-            if (EQUAL_AREAS_ONLY) {
+        } else if (this.config.isTotalAreaControlOn()) {
+            if (this.config.isEqualAreasOnly()) {
                 this.controlType = ControlType.EQUAL_AREAS;
-            } else if (INVERSE_AREAS_ONLY) {
+            } else if (this.config.isInverseAreasOnly()) {
                 this.controlType = ControlType.INVERSE_AREAS;
             } 
         } else {
@@ -114,6 +244,10 @@ public class DotsPair {
      * @param dotSetTwo
      */
     private void matchAreas() {
+        if (this.renderedAreas != null) {
+            this.matchRenderedAreas();
+            return;
+        }
         double totalAreaOne = this.dotSetOne.getTotalArea();
         double totalAreaTwo = this.dotSetTwo.getTotalArea();
         
@@ -130,6 +264,10 @@ public class DotsPair {
      * @param dotSetTwo
      */
     private void inverseMatchAreas(DotSet dotSetOne, DotSet dotSetTwo) {
+        if (this.renderedAreas != null) {
+            this.inverseMatchRenderedAreas();
+            return;
+        }
         double totalAreaOne = dotSetOne.getTotalArea();
         double totalAreaTwo = dotSetTwo.getTotalArea();
         
@@ -140,6 +278,34 @@ public class DotsPair {
         }
     }
     
+    /**
+     * Same as matchAreas(), comparing the areas the dot sets cover on screen.
+     */
+    private void matchRenderedAreas() {
+        double renderedAreaOne = this.dotSetOne.getRenderedArea(this.renderedAreas);
+        double renderedAreaTwo = this.dotSetTwo.getRenderedArea(this.renderedAreas);
+        
+        if (renderedAreaOne > renderedAreaTwo) {
+            this.dotSetOne.matchRenderedArea(renderedAreaTwo, this.renderedAreas);
+        } else {
+            this.dotSetTwo.matchRenderedArea(renderedAreaOne, this.renderedAreas);
+        }
+    }
+    
+    /**
+     * Same as inverseMatchAreas(), comparing the areas the dot sets cover on screen.
+     */
+    private void inverseMatchRenderedAreas() {
+        double renderedAreaOne = this.dotSetOne.getRenderedArea(this.renderedAreas);
+        double renderedAreaTwo = this.dotSetTwo.getRenderedArea(this.renderedAreas);
+        
+        if (renderedAreaOne > renderedAreaTwo) {
+            this.dotSetTwo.inverseMatchRenderedArea(renderedAreaOne, this.renderedAreas);
+        } else {
+            this.dotSetOne.inverseMatchRenderedArea(renderedAreaTwo, this.renderedAreas);
+        }
+    }
+    
     public DotSet getDotSetOne() {
         return this.dotSetOne;
     }
@@ -156,6 +322,26 @@ public class DotsPair {
         this.dotSetTwo = dotSetTwo;
     }
 
+    public PlacementOutcome getPlacementOutcome() {
+        return this.placementOutcome;
+    }
+    
+    public int getPlacementRounds() {
+        return this.placementRounds;
+    }
+    
+    public double getDiameterScale() {
+        return this.dotSetOne.getDiameterScale();
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+    
+    public PlacementStrategy getPlacementStrategy() {
+        return this.placementStrategy;
+    }
+
     public ControlType getControlType() {
         return controlType;
     }
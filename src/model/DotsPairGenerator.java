@@ -1,13 +1,24 @@
 package model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 
+import com.google.inject.Inject;
+
+import config.GameConfig;
+
 /**
  * @author Tony Jiang
  * 6-25-2015
@@ -33,6 +44,21 @@ import java.util.logging.SimpleFormatter;
  * A "DotsPair" in this assessment is the two sets of dots,
  * each of a different color, that is shown in the same space
  * in one trial.
+ * 
+ * The next LOOK_AHEAD trials are planned (ratio and control type) in order
+ * and their DotsPairs are generated ahead of time on a worker thread, so
+ * getNewModePair() does not have to wait for dot placement. Planned trials
+ * are discarded whenever the ratiosBucket is emptied.
+ * 
+ * Every random choice in a session derives from one session seed
+ * (session.seed, or a random seed if not configured). Each planned trial
+ * gets its own seed from a SplittableRandom split off the session, so any
+ * trial can be rebuilt from its seed, numbers of dots and control type.
+ * 
+ * writeState() saves everything the upcoming trials depend on, including the
+ * plans of the upcoming pairs and the state of the random number generators,
+ * and readState() restores it, so a resumed session gets exactly the pairs
+ * it would have got without the interruption.
  *
  */
 public class DotsPairGenerator implements DotsPairGeneratorInterface {
@@ -54,8 +80,38 @@ public class DotsPairGenerator implements DotsPairGeneratorInterface {
     public static final int MORE_THAN_SIXTY_BLOCK = 2;
     public static final int MORE_THAN_SEVENTYFIVE_BLOCK = 3;    
     
+    /** Number of DotsPairs to generate ahead of time. */
+    static final int LOOK_AHEAD = 2;
+    
+    /** Configuration snapshot passed to every DotsPair. */
+    private GameConfig config;
+    
+    /** Rendered area table passed to every DotsPair, null to match areas as pi * r^2. */
+    private RenderedAreaTable renderedAreas;
+    
+    /** Seed every random choice of the session derives from. */
+    private long sessionSeed;
+    
+    /** Generator seeded with the session seed. Seeds the other generators. */
+    private SplittableRandom sessionRandom;
+    
+    /** Source of the per-trial seeds passed to DotsPair. */
+    private SplittableRandom trialSeeds;
+    
+    /** Number of seeds taken from trialSeeds, to get back to the same point of it. */
+    private long numTrialSeeds;
+    
     /** Random number generator. */
-    Random randomGenerator = new Random();
+    SessionRandom randomGenerator;
+    
+    /** Worker thread generating upcoming DotsPairs. null to generate each pair when it is taken. */
+    private ExecutorService pairWorker;
+    
+    /** Whether the log file has been attached to the logger. Once per process. */
+    private static boolean logFileAdded;
+    
+    /** Upcoming DotsPairs in the order they will be shown. */
+    private ArrayDeque<UpcomingPair> upcomingPairs;
 
     /** The most recent DotsPair produced by DotsPairGenerator. */
     private DotsPair dotsPair; 
@@ -84,18 +140,110 @@ public class DotsPairGenerator implements DotsPairGeneratorInterface {
     private boolean lastWasBig;
     
     /**
-     * Constructor. 
+     * A DotsPair being generated ahead of time, along with the same size state
+     * from before it was planned so that discarding it can undo the planning.
+     */
+    private static class UpcomingPair {
+        final int numDotsOne;
+        final int numDotsTwo;
+        final ControlType controlType;
+        final long seed;
+        final GameConfig config;
+        final RenderedAreaTable renderedAreas;
+        final int sameSizeCorrectBefore;
+        final boolean lastWasBigBefore;
+        FutureTask<DotsPair> dotsPair;
+        
+        UpcomingPair(int numDotsOne, int numDotsTwo, ControlType controlType, long seed,
+                GameConfig config, RenderedAreaTable renderedAreas, 
+                int sameSizeCorrectBefore, boolean lastWasBigBefore) {
+            this.numDotsOne = numDotsOne;
+            this.numDotsTwo = numDotsTwo;
+            this.controlType = controlType;
+            this.seed = seed;
+            this.config = config;
+            this.renderedAreas = renderedAreas;
+            this.sameSizeCorrectBefore = sameSizeCorrectBefore;
+            this.lastWasBigBefore = lastWasBigBefore;
+        }
+        
+        DotsPair generate() {
+            return new DotsPair(this.numDotsOne, this.numDotsTwo, this.controlType, null, this.seed, 
+                    this.config, this.renderedAreas);
+        }
+    }
+    
+    /**
+     * Constructor using the default configuration.
      */
     public DotsPairGenerator() {
-        this.initLogger();
+        this(GameConfig.getDefault());
+    }
+    
+    /**
+     * Constructor.
+     * @param config Configuration snapshot.
+     */
+    @Inject
+    public DotsPairGenerator(GameConfig config) {
+        this(config, true);
+    }
+    
+    /**
+     * Constructor.
+     * @param config Configuration snapshot.
+     * @param generateAhead true to generate upcoming pairs on a worker thread while
+     *      the current one is shown. false to generate each pair on the thread that
+     *      takes it, for callers that run many generators in parallel themselves.
+     *      Pairs and seeds are the same either way.
+     */
+    public DotsPairGenerator(GameConfig config, boolean generateAhead) {
+        this.config = config;
+        initLogger();
+        this.seedSession(config.isSessionSeedSet() ? config.getSessionSeed() 
+                : new SplittableRandom().nextLong());
+        logger.log(Level.INFO, "Session seed: " + this.sessionSeed);
         this.setLastWasBig(false);
         this.blockSet = new ArrayList<Integer>();
         this.ratiosBucket = new ArrayList<Ratio>();
+        this.upcomingPairs = new ArrayDeque<UpcomingPair>();
+        if (generateAhead) {
+            this.pairWorker = Executors.newSingleThreadExecutor(r -> {
+                Thread worker = new Thread(r, "DotsPair generator");
+                worker.setDaemon(true);
+                return worker;
+            });
+        }
         this.setNumSections(0);
         this.fillBlockSet();
     }
     
-    private void initLogger() {
+    /**
+     * Seed the random number generators of the session.
+     * @param sessionSeed the session seed.
+     */
+    private void seedSession(long sessionSeed) {
+        this.sessionSeed = sessionSeed;
+        this.sessionRandom = new SplittableRandom(sessionSeed);
+        this.randomGenerator = new SessionRandom(this.sessionRandom.nextLong());
+        this.trialSeeds = this.sessionRandom.split();
+        this.numTrialSeeds = 0;
+    }
+    
+    /**
+     * Create a random number generator seeded from the session seed,
+     * for other classes that make random choices during the session.
+     * @return a new SessionRandom.
+     */
+    public SessionRandom createSessionRandom() {
+        return new SessionRandom(this.sessionRandom.nextLong());
+    }
+    
+    private static synchronized void initLogger() {
+        if (logFileAdded) {
+            return;
+        }
+        logFileAdded = true;
         FileHandler fh;  
         try {  
             fh = new FileHandler("myLog.log");  
@@ -128,18 +276,77 @@ public class DotsPairGenerator implements DotsPairGeneratorInterface {
     }
     
     /** 
-     * Get a new pair based on current mode. 
+     * Get a new pair based on current mode. Usually already generated;
+     * only waits if the worker has not finished it yet.
      */
     public void getNewModePair() {
-        Ratio ratio = this.decideRatio();
-        this.getNewPair(ratio);
+        this.prepareUpcomingPairs();
+        UpcomingPair next = this.upcomingPairs.poll();
+        this.setDotsPair(this.waitFor(next));
+        this.prepareUpcomingPairs();
+    }
+    
+    /**
+     * Plan and start generating pairs until LOOK_AHEAD pairs are upcoming.
+     */
+    public void prepareUpcomingPairs() {
+        while (this.upcomingPairs.size() < LOOK_AHEAD) {
+            Ratio ratio = this.decideRatio();
+            this.upcomingPairs.add(this.getNewPair(ratio));
+        }
+    }
+    
+    /**
+     * Wait for an upcoming pair to finish generating, or generate it now if there
+     * is no worker. If generation failed, generate it again on this thread.
+     * @param upcomingPair the pair to wait for.
+     * @return the generated DotsPair.
+     */
+    private DotsPair waitFor(UpcomingPair upcomingPair) {
+        if (this.pairWorker == null) {
+            upcomingPair.dotsPair.run();
+        }
+        long start = System.nanoTime();
+        boolean ready = upcomingPair.dotsPair.isDone();
+        try {
+            DotsPair generated = upcomingPair.dotsPair.get();
+            if (!ready) {
+                logger.log(Level.INFO, "Waited " + (System.nanoTime() - start) / 1000000.0 
+                        + " ms for DotsPair");
+            }
+            return generated;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return upcomingPair.generate();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return upcomingPair.generate();
+        }
     }
     
     /**
-     * Empty the ratio bucket. 
+     * Discard every upcoming pair and undo the effect planning them had
+     * on the same size state.
+     */
+    private void discardUpcomingPairs() {
+        UpcomingPair first = this.upcomingPairs.peek();
+        if (first != null) {
+            this.sameSizeCorrect = first.sameSizeCorrectBefore;
+            this.lastWasBig = first.lastWasBigBefore;
+        }
+        for (UpcomingPair upcomingPair : this.upcomingPairs) {
+            upcomingPair.dotsPair.cancel(false);
+        }
+        this.upcomingPairs.clear();
+    }
+    
+    /**
+     * Empty the ratio bucket and discard the upcoming pairs planned from it. 
      */
     public void clearRatios() {
+        this.discardUpcomingPairs();
         this.ratiosBucket.clear();
+        this.prepareUpcomingPairs();
     }
     
     /**
@@ -195,11 +402,14 @@ public class DotsPairGenerator implements DotsPairGeneratorInterface {
     }
     
     /**
-     * Get a new pair with a specified ratio of numbers of dots.
+     * Plan a new pair with a specified ratio of numbers of dots and start generating it.
      * Scale the total number of dots to a range between MIN_DOTS and MAX_DOTS.
      * @param ratio
+     * @return the upcoming pair.
      */
-    private void getNewPair(Ratio ratio) {
+    private UpcomingPair getNewPair(Ratio ratio) {
+        int sameSizeCorrectBefore = this.sameSizeCorrect;
+        boolean lastWasBigBefore = this.lastWasBig;
         int ratioNumOne = ratio.getNumOne();
         int ratioNumTwo = ratio.getNumTwo();
         int numDotsOne = ratio.getNumOne();
@@ -214,20 +424,41 @@ public class DotsPairGenerator implements DotsPairGeneratorInterface {
             numDotsOne += ratioNumOne;
             numDotsTwo += ratioNumTwo;
         }
-        this.checkAndSet(numDotsOne, numDotsTwo);
+        UpcomingPair upcomingPair = this.checkAndSet(numDotsOne, numDotsTwo, 
+                sameSizeCorrectBefore, lastWasBigBefore);
         logger.log(Level.INFO, numDotsOne + " " + numDotsTwo);
         logger.log(Level.INFO, Double.toString((double) numDotsOne / (numDotsOne + numDotsTwo)));
         logger.log(Level.INFO, Double.toString((double) numDotsTwo / (numDotsOne + numDotsTwo)));
+        return upcomingPair;
     }
     
     /**
-     * Set the dots pair.
+     * Decide the control type and start generating the dots pair on the worker thread.
      * @param dotSetOne number of dots in dot set one.
      * @param dotSetTwo number of dots in dot set two.
+     * @param sameSizeCorrectBefore sameSizeCorrect before this pair was planned.
+     * @param lastWasBigBefore lastWasBig before this pair was planned.
+     * @return the upcoming pair.
      */
-    private void checkAndSet(int dotSetOne, int dotSetTwo) {  
+    private UpcomingPair checkAndSet(int dotSetOne, int dotSetTwo, 
+            int sameSizeCorrectBefore, boolean lastWasBigBefore) {  
         ControlType controlTypeCandidate = generateAreaControlType(dotSetOne, dotSetTwo);
-        this.setDotsPair(new DotsPair(dotSetOne, dotSetTwo, controlTypeCandidate));
+        UpcomingPair upcomingPair = new UpcomingPair(dotSetOne, dotSetTwo, controlTypeCandidate,
+                this.trialSeeds.nextLong(), this.config, this.renderedAreas, 
+                sameSizeCorrectBefore, lastWasBigBefore);
+        this.numTrialSeeds++;
+        this.startGenerating(upcomingPair);
+        return upcomingPair;
+    }
+    
+    /**
+     * Start generating an upcoming pair on the worker thread, if there is one.
+     */
+    private void startGenerating(UpcomingPair upcomingPair) {
+        upcomingPair.dotsPair = new FutureTask<DotsPair>(upcomingPair::generate);
+        if (this.pairWorker != null) {
+            this.pairWorker.execute(upcomingPair.dotsPair);
+        }
     }
     
     /**
@@ -318,9 +549,11 @@ public class DotsPairGenerator implements DotsPairGeneratorInterface {
     }
         
     /** 
-     * Change to the next block. Clear the ratiosBucket.
+     * Change to the next block. Clear the ratiosBucket and discard the upcoming
+     * pairs, then start generating pairs for the new block.
      */
     public void changeBlock() {
+        this.discardUpcomingPairs();
         this.blockSet.remove(0);
         if (!this.blockSet.isEmpty()) {
             this.blockMode = this.blockSet.get(0);
@@ -329,11 +562,102 @@ public class DotsPairGenerator implements DotsPairGeneratorInterface {
             this.blockMode = this.blockSet.get(0);
         }
         this.ratiosBucket.clear();
+        this.prepareUpcomingPairs();
     }
 
     public DotsPair getDotsPair() {
         return this.dotsPair;
     }
+    
+    /**
+     * Save the state the upcoming trials depend on: the session seed and how far
+     * the random number generators are into it, the blocks and ratios left, the
+     * same size state and the plans of the upcoming pairs.
+     * @param out where to write it.
+     * @throws IOException if writing fails.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(this.sessionSeed);
+        out.writeLong(this.numTrialSeeds);
+        out.writeLong(this.randomGenerator.getState());
+        out.writeInt(this.blockMode);
+        out.writeInt(this.numSections);
+        out.writeByte(this.blockSet.size());
+        for (int block : this.blockSet) {
+            out.writeByte(block);
+        }
+        out.writeByte(this.ratiosBucket.size());
+        for (Ratio ratio : this.ratiosBucket) {
+            out.writeShort(ratio.getNumOne());
+            out.writeShort(ratio.getNumTwo());
+        }
+        out.writeInt(this.sameSizeCorrect);
+        out.writeBoolean(this.lastWasBig);
+        out.writeByte(this.upcomingPairs.size());
+        for (UpcomingPair upcomingPair : this.upcomingPairs) {
+            out.writeShort(upcomingPair.numDotsOne);
+            out.writeShort(upcomingPair.numDotsTwo);
+            out.writeByte(upcomingPair.controlType.ordinal());
+            out.writeLong(upcomingPair.seed);
+            out.writeInt(upcomingPair.sameSizeCorrectBefore);
+            out.writeBoolean(upcomingPair.lastWasBigBefore);
+        }
+    }
+    
+    /**
+     * Restore the state saved by writeState(), discarding the upcoming pairs,
+     * and start generating the upcoming pairs saved with the current configuration.
+     * @param in where to read it.
+     * @throws IOException if reading fails.
+     */
+    public void readState(DataInput in) throws IOException {
+        this.discardUpcomingPairs();
+        this.seedSession(in.readLong());
+        long numTrialSeeds = in.readLong();
+        for (long i = 0; i < numTrialSeeds; i++) {
+            this.trialSeeds.nextLong();
+        }
+        this.numTrialSeeds = numTrialSeeds;
+        this.randomGenerator.setState(in.readLong());
+        this.blockMode = in.readInt();
+        this.numSections = in.readInt();
+        this.blockSet.clear();
+        for (int i = in.readByte(); i > 0; i--) {
+            this.blockSet.add((int) in.readByte());
+        }
+        this.ratiosBucket.clear();
+        for (int i = in.readByte(); i > 0; i--) {
+            this.ratiosBucket.add(new Ratio(in.readShort(), in.readShort()));
+        }
+        this.sameSizeCorrect = in.readInt();
+        this.lastWasBig = in.readBoolean();
+        for (int i = in.readByte(); i > 0; i--) {
+            UpcomingPair upcomingPair = new UpcomingPair(in.readShort(), in.readShort(), 
+                    ControlType.values()[in.readByte()], in.readLong(), this.config, this.renderedAreas,
+                    in.readInt(), in.readBoolean());
+            this.startGenerating(upcomingPair);
+            this.upcomingPairs.add(upcomingPair);
+        }
+        logger.log(Level.INFO, "Restored session " + this.sessionSeed + " at section " + this.numSections 
+                + ", blocks " + this.blockSet + ", ratios " + this.ratiosBucket);
+    }
+    
+    /**
+     * Use a new configuration for pairs planned from now on. Pairs already
+     * upcoming keep the configuration they were planned with until discarded.
+     * @param config the new configuration snapshot.
+     */
+    public void setConfig(GameConfig config) {
+        this.config = config;
+    }
+    
+    /**
+     * Match the areas of pairs planned from now on as they are rendered.
+     * @param renderedAreas rendered area of a dot by diameter. null to match pi * r^2.
+     */
+    public void setRenderedAreaTable(RenderedAreaTable renderedAreas) {
+        this.renderedAreas = renderedAreas;
+    }
 
     public void setDotsPair(DotsPair dotsPair) {
         this.dotsPair = dotsPair;
@@ -367,6 +691,10 @@ public class DotsPairGenerator implements DotsPairGeneratorInterface {
         this.blockMode = blockMode;
     }
 
+    public long getSessionSeed() {
+        return this.sessionSeed;
+    }
+
     public int getNumSections() {
         return numSections;
     }
@@ -1,10 +1,23 @@
 package model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import config.GameConfig;
+
 public interface DotsPairGeneratorInterface {
     void changeBlock();
     public void clearRatios();
     public int getBlockMode();
     public DotsPair getDotsPair();
     public void getNewModePair();
+    public void prepareUpcomingPairs();
     public int getNumSections();
+    public long getSessionSeed();
+    public SessionRandom createSessionRandom();
+    public void writeState(DataOutput out) throws IOException;
+    public void readState(DataInput in) throws IOException;
+    public void setConfig(GameConfig config);
+    public void setRenderedAreaTable(RenderedAreaTable renderedAreas);
 }
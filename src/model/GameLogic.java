@@ -1,8 +1,5 @@
 package model;
 
-import javafx.scene.input.KeyCode;
-import javafx.scene.input.KeyEvent;
-
 /**
  * Utility class for the game logic.
  * 
@@ -49,14 +46,15 @@ public final class GameLogic {
     }
     /**
      * Checks whether subject's answer is correct or incorrect.
-     * @param e The key event to check which key the user pressed.
-     * @param dotsPair The current DotsPair being evaluated.
+     * @param pressedF True if the subject pressed F, false if J.
+     * @param yesCorrect True if "Yes" is the correct answer.
+     * @param FforTrue True if F is the key for "Yes".
      * @return correct True if correct, false otherwise.
      */
-    public static boolean checkAnswerCorrect(KeyEvent e, boolean yesCorrect, boolean FforTrue) {
+    public static boolean checkAnswerCorrect(boolean pressedF, boolean yesCorrect, boolean FforTrue) {
         boolean correct;
-        if ((yesCorrect && e.getCode() == KeyCode.F)
-                || !yesCorrect && e.getCode() == KeyCode.J) {
+        if ((yesCorrect && pressedF)
+                || !yesCorrect && !pressedF) {
             correct = true;
         } else {  
             correct = false;     
@@ -0,0 +1,32 @@
+package model;
+
+/**
+ * Enum PlacementOutcome describing how the dots of a dot set pair (DotsPair) were placed.
+ *
+ * Dot placement is random with a limited number of attempts per dot
+ * (see max.attempts.per.dot), so a pair that cannot be packed onto the
+ * canvas falls back to restarting, then shrinking, then allowing overlap.
+ *
+ * @author Tony Jiang
+ *
+ */
+public enum PlacementOutcome {
+
+    /** Every dot was placed on the first try at the configured diameters. */
+    PLACED,
+
+    /** Every dot was placed at the configured diameters after regenerating the pair. */
+    RESTARTED,
+
+    /**
+     * Every dot was placed after shrinking the diameters, either because the
+     * estimated packing density was too high or because restarting did not help.
+     */
+    SHRUNK,
+
+    /**
+     * Some dots could not be placed even after shrinking and were placed
+     * overlapping other dots. The trial should be excluded from analysis.
+     */
+    OVERLAPPING
+}
@@ -0,0 +1,37 @@
+package model;
+
+/**
+ * Enum PlacementStrategy describing how the positions of the dots in a dot set pair (DotsPair) are chosen.
+ * 
+ * Selected with placement.strategy in defaultconfig.properties.
+ * 
+ * @author Tony Jiang
+ *
+ */
+public enum PlacementStrategy {
+    
+    /** 
+     * Rejection sampling. Each dot is tried at uniformly random positions
+     * until it does not overlap another dot. Slows down as the canvas fills up.
+     */
+    RANDOM,
+    
+    /** 
+     * Poisson-disk sampling (see PoissonDiskSampler.java). The canvas is filled with evenly
+     * spread centers at least the largest diameter plus MIN_DISTANCE_BETWEEN_DOTS apart
+     * in linear time, and each dot is given one of them at random.
+     */
+    POISSON_DISK;
+    
+    /**
+     * Parse the value of placement.strategy.
+     * @param value "random" or "poisson.disk".
+     * @return the matching strategy, RANDOM if not recognized.
+     */
+    public static PlacementStrategy fromConfig(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("poisson.disk")) {
+            return POISSON_DISK;
+        }
+        return RANDOM;
+    }
+}
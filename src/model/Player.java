@@ -1,8 +1,5 @@
 package model;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-
 /**
  * Object to represent the Subject.
  * 
@@ -25,17 +22,21 @@ public class Player {
     private Gender subjectGender;
     
     /** The subject's age. */
-    private IntegerProperty subjectAge;
+    private int subjectAge;
     
     /** The number of correct answers the subject has input. */
-    private IntegerProperty numCorrect;
+    private int numCorrect;
     
     /** The total number of questions the subject has answered. */
-    private IntegerProperty numRounds;
+    private int numRounds;
     
     /** The response time of the subject for the most recent question. */
     private double responseTime;
     
+    /** The response time measured from the onset of the dots on screen to the 
+     * timestamp of the key press. NaN if unknown. */
+    private double correctedResponseTime;
+    
     /** Whether the subject was correct for the most recent question. */
     private boolean isRight;
     
@@ -44,13 +45,14 @@ public class Player {
      */
     public Player() {
         this.subjectID = "";
-        this.subjectAge = new SimpleIntegerProperty(0);
-        this.numCorrect = new SimpleIntegerProperty(0);
-        this.numRounds = new SimpleIntegerProperty(0);
+        this.subjectAge = 0;
+        this.numCorrect = 0;
+        this.numRounds = 0;
         this.setResponseTime(0);
+        this.setCorrectedResponseTime(Double.NaN);
     }
 
-    public Player(String subjectID, Gender subjectGender, IntegerProperty subjectAge) {
+    public Player(String subjectID, Gender subjectGender, int subjectAge) {
         this();
         this.subjectID = subjectID;
         this.subjectGender = subjectGender;
@@ -62,31 +64,39 @@ public class Player {
     }
 
     public int getNumCorrect() {
-        return this.numCorrect.get();
+        return this.numCorrect;
     }
 
     public void setNumCorrect(int numCorrect) {
-        this.numCorrect.set(numCorrect);
+        this.numCorrect = numCorrect;
     }
     
     public void addPoint() {
-        this.numCorrect.set(this.numCorrect.get() + 1);
+        this.numCorrect++;
     }
     
     public void setResponseTime(double responseTime) {
         this.responseTime = responseTime;
     }
+    
+    public double getCorrectedRT() {
+        return this.correctedResponseTime;
+    }
+    
+    public void setCorrectedResponseTime(double correctedResponseTime) {
+        this.correctedResponseTime = correctedResponseTime;
+    }
 
     public int getNumRounds() {
-        return this.numRounds.get();
+        return this.numRounds;
     }
 
     public void setNumRounds(int numRounds) {
-        this.numRounds.set(numRounds);
+        this.numRounds = numRounds;
     }
     
     public void incrementNumRounds() {
-        this.numRounds.set(this.numRounds.get() + 1);
+        this.numRounds++;
     }
 
     public String getSubjectID() {
@@ -114,10 +124,10 @@ public class Player {
     }
 
     public int getSubjectAge() {
-        return this.subjectAge.get();
+        return this.subjectAge;
     }
 
     public void setSubjectAge(int subjectAge) {
-        this.subjectAge.set(subjectAge);
+        this.subjectAge = subjectAge;
     }
 }
@@ -0,0 +1,212 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates evenly spread dot centers with Bridson's Poisson-disk sampling
+ * (Fast Poisson Disk Sampling in Arbitrary Dimensions, 2007).
+ *
+ * Every pair of centers is at least 'spacing' apart. The canvas is filled
+ * until no more points fit, which takes time linear in the number of points.
+ * The points are then shuffled so that taking the first N of them gives N
+ * centers spread over the whole canvas rather than clustered around the
+ * first point.
+ *
+ * Classes Related To:
+ *  -DotsPair.java
+ *      -Creates one sampler for both DotSets of a pair when the placement
+ *      strategy is POISSON_DISK.
+ *  -DotSet.java
+ *      -Each DotSet takes its dot centers from the shared sampler.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class PoissonDiskSampler {
+
+    /** Number of candidates tried around an active point before it is retired. */
+    static final int CANDIDATES_PER_POINT = 30;
+
+    /** Value marking an empty background grid cell. */
+    private static final int EMPTY = -1;
+
+    /** Bounds of the area centers may lie in. */
+    private final double minX;
+    private final double minY;
+    private final double width;
+    private final double height;
+
+    /** Minimum distance between two centers. */
+    private final double spacing;
+
+    /** Background grid with cells of side spacing / sqrt(2), so each cell holds at most one point. */
+    private final double cellSize;
+    private final int numCols;
+    private final int numRows;
+    private final int[] grid;
+
+    /** The generated centers. */
+    private final double[] xs;
+    private final double[] ys;
+    private int numPoints;
+
+    /** Index of the next point to be taken. */
+    private int nextPoint;
+
+    /** Indices of points that may still have room around them. */
+    private final int[] active;
+
+    /** Random number generator */
+    private Random randomGenerator;
+
+    /**
+     * Constructor for PoissonDiskSampler. Generates and shuffles the points.
+     * @param minX Smallest x a center may have.
+     * @param minY Smallest y a center may have.
+     * @param width Width of the area centers may lie in.
+     * @param height Height of the area centers may lie in.
+     * @param spacing Minimum distance between two centers.
+     * @param randomGenerator Random number generator.
+     */
+    public PoissonDiskSampler(double minX, double minY, double width, double height,
+            double spacing, Random randomGenerator) {
+        this.minX = minX;
+        this.minY = minY;
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        this.spacing = spacing;
+        this.randomGenerator = randomGenerator;
+        this.cellSize = spacing / Math.sqrt(2);
+        this.numCols = Math.max(1, (int) Math.ceil(this.width / this.cellSize));
+        this.numRows = Math.max(1, (int) Math.ceil(this.height / this.cellSize));
+        this.grid = new int[this.numCols * this.numRows];
+        this.xs = new double[this.grid.length];
+        this.ys = new double[this.grid.length];
+        this.active = new int[this.grid.length];
+        this.generate();
+        this.shuffle();
+    }
+
+    /**
+     * Fill the area with points using Bridson's algorithm.
+     */
+    private void generate() {
+        Arrays.fill(this.grid, EMPTY);
+        this.numPoints = 0;
+        this.addPoint(this.randomGenerator.nextDouble() * this.width,
+                this.randomGenerator.nextDouble() * this.height);
+        int numActive = 1;
+        this.active[0] = 0;
+
+        while (numActive > 0) {
+            int activeIndex = this.randomGenerator.nextInt(numActive);
+            int point = this.active[activeIndex];
+            boolean found = false;
+            for (int k = 0; k < CANDIDATES_PER_POINT; k++) {
+                double angle = this.randomGenerator.nextDouble() * 2 * Math.PI;
+                double distance = this.spacing * (1 + this.randomGenerator.nextDouble());
+                double x = this.xs[point] + distance * Math.cos(angle);
+                double y = this.ys[point] + distance * Math.sin(angle);
+                if (x >= 0 && x <= this.width && y >= 0 && y <= this.height && !this.isNearOther(x, y)) {
+                    this.active[numActive] = this.numPoints;
+                    numActive++;
+                    this.addPoint(x, y);
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                numActive--;
+                this.active[activeIndex] = this.active[numActive];
+            }
+        }
+    }
+
+    /**
+     * Checks if a point is closer than spacing to a point already generated.
+     * @param x X position relative to minX.
+     * @param y Y position relative to minY.
+     * @return true if another point is too close.
+     */
+    private boolean isNearOther(double x, double y) {
+        int col = this.colOf(x);
+        int row = this.rowOf(y);
+        double minDistanceSquared = this.spacing * this.spacing;
+        for (int r = Math.max(0, row - 2); r <= Math.min(this.numRows - 1, row + 2); r++) {
+            for (int c = Math.max(0, col - 2); c <= Math.min(this.numCols - 1, col + 2); c++) {
+                int other = this.grid[r * this.numCols + c];
+                if (other != EMPTY) {
+                    double dx = x - this.xs[other];
+                    double dy = y - this.ys[other];
+                    if (dx * dx + dy * dy < minDistanceSquared) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void addPoint(double x, double y) {
+        this.xs[this.numPoints] = x;
+        this.ys[this.numPoints] = y;
+        this.grid[this.rowOf(y) * this.numCols + this.colOf(x)] = this.numPoints;
+        this.numPoints++;
+    }
+
+    private int colOf(double x) {
+        return Math.min(this.numCols - 1, (int) (x / this.cellSize));
+    }
+
+    private int rowOf(double y) {
+        return Math.min(this.numRows - 1, (int) (y / this.cellSize));
+    }
+
+    /**
+     * Shuffle the points (Fisher-Yates) so they can be taken in random order.
+     */
+    private void shuffle() {
+        for (int i = this.numPoints - 1; i > 0; i--) {
+            int j = this.randomGenerator.nextInt(i + 1);
+            double x = this.xs[i];
+            double y = this.ys[i];
+            this.xs[i] = this.xs[j];
+            this.ys[i] = this.ys[j];
+            this.xs[j] = x;
+            this.ys[j] = y;
+        }
+        this.nextPoint = 0;
+    }
+
+    /**
+     * @return true if there are points left to be taken.
+     */
+    public boolean hasNext() {
+        return this.nextPoint < this.numPoints;
+    }
+
+    /**
+     * Take the next point. Call getX() and getY() for its position.
+     * @return index of the point taken.
+     */
+    public int next() {
+        return this.nextPoint++;
+    }
+
+    public double getX(int point) {
+        return this.minX + this.xs[point];
+    }
+
+    public double getY(int point) {
+        return this.minY + this.ys[point];
+    }
+
+    public int getNumPoints() {
+        return this.numPoints;
+    }
+
+    public double getSpacing() {
+        return this.spacing;
+    }
+}
@@ -0,0 +1,130 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Lookup table of the area a dot actually covers on screen, by diameter.
+ *
+ * Antialiasing spreads the edge of a dot over partly covered pixels, so the
+ * luminous area of a small dot differs from pi * r^2 by an amount that
+ * depends on the diameter. The table holds the measured coverage of a dot
+ * at every STEP of diameter, for one display configuration. Diameters
+ * between entries are interpolated; larger diameters are extrapolated from
+ * the last entry.
+ *
+ * The table is measured by the view (see RenderedAreaCalibration.java) and
+ * cached on disk as text: a header line, then one area per line.
+ *
+ * Classes Related To:
+ *  -DotSet.java
+ *      -Scales its dots to a rendered area.
+ *  -DotsPair.java
+ *      -Matches the rendered areas of its dot sets when a table is given.
+ *
+ * @author Tony Jiang
+ *
+ */
+public final class RenderedAreaTable {
+
+    /** Difference between the diameters of two consecutive entries, in pixels. */
+    public static final double STEP = 1.0 / 16;
+
+    /** First word of the header of a cached table. */
+    private static final String HEADER = "rendered-area-table";
+
+    /** areas[i] is the rendered area of a dot of diameter i * STEP. */
+    private final double[] areas;
+
+    /**
+     * Constructor for RenderedAreaTable.
+     * @param areas areas[i] is the rendered area in pixels of a dot of diameter i * STEP.
+     */
+    public RenderedAreaTable(double[] areas) {
+        if (areas.length < 2) {
+            throw new IllegalArgumentException("A rendered area table needs at least 2 entries.");
+        }
+        this.areas = areas.clone();
+    }
+
+    /**
+     * The area a dot covers on screen.
+     * @param diameter diameter of the dot in pixels.
+     * @return the rendered area in pixels.
+     */
+    public double area(double diameter) {
+        double position = diameter / STEP;
+        int last = this.areas.length - 1;
+        if (position >= last) {
+            double lastDiameter = last * STEP;
+            return this.areas[last] * (diameter / lastDiameter) * (diameter / lastDiameter);
+        }
+        if (position <= 0) {
+            return 0;
+        }
+        int i = (int) position;
+        double fraction = position - i;
+        return this.areas[i] + (this.areas[i + 1] - this.areas[i]) * fraction;
+    }
+
+    /**
+     * @return the largest diameter measured, in pixels.
+     */
+    public double getMaxDiameter() {
+        return (this.areas.length - 1) * STEP;
+    }
+
+    /**
+     * Write the table to a file.
+     * @param file the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER + " " + STEP + " " + this.areas.length + "\n");
+            for (double area : this.areas) {
+                writer.write(Double.toString(area));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Read a table written by save().
+     * @param file the file.
+     * @return the table, or null if the file does not exist or was written with another STEP.
+     * @throws IOException if the file cannot be read or is not a table.
+     */
+    public static RenderedAreaTable load(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String[] header = String.valueOf(reader.readLine()).split(" ");
+            if (header.length != 3 || !header[0].equals(HEADER)) {
+                throw new IOException(file + " is not a rendered area table.");
+            }
+            if (Double.parseDouble(header[1]) != STEP) {
+                return null;
+            }
+            double[] areas = new double[Integer.parseInt(header[2])];
+            for (int i = 0; i < areas.length; i++) {
+                String line = reader.readLine();
+                if (line == null) {
+                    throw new IOException(file + " ends after " + i + " entries.");
+                }
+                areas[i] = Double.parseDouble(line);
+            }
+            return new RenderedAreaTable(areas);
+        } catch (NumberFormatException e) {
+            throw new IOException(file + " is not a rendered area table.", e);
+        }
+    }
+}
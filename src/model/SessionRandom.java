@@ -0,0 +1,67 @@
+package model;
+
+import java.util.Random;
+
+/**
+ * Random number generator whose state can be saved and restored, so that a
+ * session resumed from a checkpoint makes the same random choices it would
+ * have made without the interruption.
+ *
+ * Gives exactly the same numbers as java.util.Random with the same seed; it
+ * only keeps the 48 bit state where it can be read.
+ *
+ * Not thread safe.
+ *
+ * Classes Related To:
+ *  -DotsPairGenerator.java
+ *      -Makes the random choices of the session with one, and creates one for the controller.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class SessionRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    /** The state, as in java.util.Random. Set by setSeed() from the constructor of Random. */
+    private long state;
+
+    /**
+     * Constructor.
+     * @param seed the seed.
+     */
+    public SessionRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        this.state = (this.state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (this.state >>> (48 - bits));
+    }
+
+    /**
+     * @return the state, to be given to setState() to continue from here.
+     */
+    public long getState() {
+        return this.state;
+    }
+
+    /**
+     * Continue from a state returned by getState().
+     * @param state the state.
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,94 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import config.Config;
+import config.ConfigWatcher;
+import config.GameConfig;
+
+public class TestConfig {
+
+    /** Time in milliseconds to wait for the watcher to see a change. */
+    private static final int WATCH_TIMEOUT = 10000;
+
+    private Properties defaults;
+    private Path localConfigFile;
+
+    @Before
+    public void initialize() throws IOException {
+        this.defaults = Config.getProperties();
+        this.localConfigFile = Files.createTempDirectory("config").resolve("localconfig.properties");
+        System.setProperty("config.file", this.localConfigFile.toString());
+    }
+
+    @After
+    public void restore() {
+        System.clearProperty("config.file");
+        Config.setCommandLineArguments(new String[0]);
+        Config.setCanvasSize(Integer.parseInt(this.defaults.getProperty("canvas.width")),
+                Integer.parseInt(this.defaults.getProperty("canvas.height")));
+        Config.reload();
+    }
+
+    private void writeLocalConfig(String... lines) throws IOException {
+        Files.write(this.localConfigFile, Arrays.asList(lines), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testLayersOverrideInOrder() throws IOException {
+        this.writeLocalConfig("flash.time=111", "time.between.rounds=222", "canvas.width=900");
+        Config.reload();
+        Config.setCanvasSize(1000, 600);
+        Config.setCommandLineArguments(new String[] {"--time.between.rounds=333", "--canvas.height=700"});
+
+        Properties properties = Config.getProperties();
+        assertEquals("111", properties.getProperty("flash.time"));
+        assertEquals("333", properties.getProperty("time.between.rounds"));
+        assertEquals("1000", properties.getProperty("canvas.width"));
+        assertEquals("700", properties.getProperty("canvas.height"));
+        assertEquals(this.defaults.getProperty("refresh.rate"), properties.getProperty("refresh.rate"));
+
+        this.writeLocalConfig("flash.time=444", "time.between.rounds=222");
+        Config.reload();
+        properties = Config.getProperties();
+        assertEquals("444", properties.getProperty("flash.time"));
+        assertEquals("333", properties.getProperty("time.between.rounds"));
+    }
+
+    @Test
+    public void testWatcherReloadsChanges() throws IOException, InterruptedException {
+        this.writeLocalConfig("flash.time=111");
+        Config.reload();
+        ConfigWatcher watcher = new ConfigWatcher(this.localConfigFile);
+        watcher.start();
+        try {
+            assertNull(watcher.takeReloadedConfig());
+            this.writeLocalConfig("flash.time=555");
+            GameConfig reloaded = null;
+            long deadline = System.currentTimeMillis() + WATCH_TIMEOUT;
+            while (reloaded == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                reloaded = watcher.takeReloadedConfig();
+            }
+            assertNotNull(reloaded);
+            assertEquals(555, reloaded.getFlashTime());
+            assertEquals("555", Config.getProperties().getProperty("flash.time"));
+            assertNull(watcher.takeReloadedConfig());
+        } finally {
+            watcher.stop();
+        }
+    }
+}
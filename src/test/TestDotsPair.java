@@ -2,45 +2,23 @@ package test;
 
 import static org.junit.Assert.assertEquals;
 
-import javafx.application.Application;
-import javafx.stage.Stage;
+import java.util.Properties;
 
 import org.junit.Before;
-import org.junit.BeforeClass;
 import org.junit.Test;
 
-import view.GameGUI;
+import config.Config;
+import config.GameConfig;
 import model.ControlType;
 import model.DotsPair;
+import model.PlacementOutcome;
+import model.PlacementStrategy;
+import model.RenderedAreaTable;
 
 public class TestDotsPair {
        
     private DotsPair testDotsPair;
     
-    public static class AsNonApp extends Application {
-        @Override
-        public void start(Stage primaryStage) throws Exception {
-            new GameGUI(primaryStage);
-        }
-    }
-
-    @BeforeClass
-    public static void initJFX() {
-        Thread t = new Thread("JavaFX Init Thread") {
-            public void run() {
-                Application.launch(AsNonApp.class, new String[0]);
-            }
-        };
-        t.setDaemon(true);
-        t.start();
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-    }
-    
     @Before
     public void initialize() {
         testDotsPair = new DotsPair(10, 15, ControlType.EQUAL_AREAS);
@@ -51,4 +29,35 @@ public class TestDotsPair {
         assertEquals(testDotsPair.getDotSetOne().getTotalArea(), testDotsPair.getDotSetTwo().getTotalArea(), .01);
         assertEquals(testDotsPair.getDotSetOne().getTotalNumDots(), testDotsPair.getDotSetTwo().getTotalNumDots() - 5, 0);
     }
+    
+    @Test
+    public void testRenderedEqualAreas() {
+        double[] areas = new double[64 * 16 + 1];
+        for (int i = 0; i < areas.length; i++) {
+            double radius = i * RenderedAreaTable.STEP / 2;
+            areas[i] = Math.PI * radius * radius + Math.PI * radius * 0.1;
+        }
+        RenderedAreaTable table = new RenderedAreaTable(areas);
+        DotsPair dotsPair = new DotsPair(10, 15, ControlType.EQUAL_AREAS, PlacementStrategy.RANDOM, 1, 
+                GameConfig.getDefault(), table);
+        assertEquals(dotsPair.getDotSetOne().getRenderedArea(table), 
+                dotsPair.getDotSetTwo().getRenderedArea(table), .01);
+    }
+    
+    @Test
+    public void testInfeasiblePairOverlaps() {
+        Properties properties = Config.getProperties();
+        properties.setProperty("canvas.width", "20");
+        properties.setProperty("canvas.height", "20");
+        properties.setProperty("max.packing.density", "1");
+        properties.setProperty("max.attempts.per.dot", "20");
+        properties.setProperty("average.radius.control", "false");
+        GameConfig crowded = new GameConfig(properties);
+        for (PlacementStrategy strategy : PlacementStrategy.values()) {
+            DotsPair dotsPair = new DotsPair(40, 30, ControlType.EQUAL_AREAS, strategy, 7, crowded);
+            assertEquals(PlacementOutcome.OVERLAPPING, dotsPair.getPlacementOutcome());
+            assertEquals(40, dotsPair.getDotSetOne().getNumDotsPlaced());
+            assertEquals(30, dotsPair.getDotSetTwo().getNumDotsPlaced());
+        }
+    }
 }
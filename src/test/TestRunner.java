@@ -6,7 +6,8 @@ import org.junit.runner.notification.Failure;
 
 public class TestRunner {
     public static void main(String[] args) {
-       Result result = JUnitCore.runClasses(TestDotsPair.class);
+       Result result = JUnitCore.runClasses(TestDotsPair.class, TestSessionCheckpoint.class,
+               TestTrialEncoder.class, TestTrialJournal.class, TestConfig.class);
        for (Failure failure : result.getFailures()) {
           System.out.println(failure.toString());
        }
@@ -0,0 +1,82 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import config.Config;
+import config.GameConfig;
+import controller.SessionCheckpoint;
+import model.DotsPair;
+import model.DotsPairGenerator;
+import model.SessionRandom;
+
+public class TestSessionCheckpoint {
+
+    private static DotsPairGenerator generator(long seed) {
+        Properties properties = new Properties();
+        properties.putAll(Config.getProperties());
+        properties.setProperty("session.seed", Long.toString(seed));
+        return new DotsPairGenerator(new GameConfig(properties), false);
+    }
+
+    @Test
+    public void testSessionRandomMatchesRandom() {
+        Random random = new Random(42);
+        SessionRandom sessionRandom = new SessionRandom(42);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(random.nextInt(7), sessionRandom.nextInt(7));
+            assertEquals(random.nextLong(), sessionRandom.nextLong());
+        }
+        SessionRandom resumed = new SessionRandom(0);
+        resumed.setState(sessionRandom.getState());
+        assertEquals(sessionRandom.nextInt(), resumed.nextInt());
+    }
+
+    @Test
+    public void testResumeGivesTheSamePairs() throws IOException {
+        DotsPairGenerator original = generator(5);
+        for (int trial = 0; trial < 13; trial++) {
+            if (trial == 10) {
+                original.changeBlock();
+            }
+            original.getNewModePair();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.writeState(new DataOutputStream(bytes));
+        Path file = Files.createTempDirectory("checkpoint").resolve("checkpoint.bin");
+        new SessionCheckpoint("1001", bytes.toByteArray()).write(file);
+        SessionCheckpoint checkpoint = SessionCheckpoint.read(file);
+        assertEquals("1001", checkpoint.getSubjectId());
+
+        DotsPairGenerator resumed = generator(6);
+        resumed.readState(checkpoint.openState());
+        for (int trial = 13; trial < 40; trial++) {
+            if (trial % 10 == 0) {
+                original.changeBlock();
+                resumed.changeBlock();
+            }
+            original.getNewModePair();
+            resumed.getNewModePair();
+            DotsPair expected = original.getDotsPair();
+            DotsPair actual = resumed.getDotsPair();
+            assertEquals(original.getBlockMode(), resumed.getBlockMode());
+            assertEquals(expected.getSeed(), actual.getSeed());
+            assertEquals(expected.getControlType(), actual.getControlType());
+            assertEquals(expected.getDotSetOne().getTotalNumDots(), actual.getDotSetOne().getTotalNumDots());
+            assertEquals(expected.getDotSetTwo().getTotalNumDots(), actual.getDotSetTwo().getTotalNumDots());
+        }
+
+        SessionCheckpoint.delete(file);
+        assertNull(SessionCheckpoint.read(file));
+    }
+}
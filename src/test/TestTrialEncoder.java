@@ -0,0 +1,58 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import org.junit.Test;
+
+import controller.DataWriter;
+import controller.TrialEncoder;
+import controller.TrialRecord;
+import model.ControlType;
+import model.PlacementOutcome;
+import model.Player;
+
+public class TestTrialEncoder {
+
+    /** A subject ID with an accented letter and a character outside the BMP. */
+    private static final String SUBJECT_ID = "Zo\u00eb\ud83d\ude00";
+
+    private static TrialRecord trial() {
+        return new TrialRecord.Builder()
+                .subject(SUBJECT_ID, 21, Player.Gender.FEMALE)
+                .numDots(12, 9)
+                .areas(1500.0, 1200.0)
+                .yesCorrect(true)
+                .correct(false)
+                .block(2, 3)
+                .controlType(ControlType.INVERSE_AREAS)
+                .colors("Blue", "Yellow")
+                .responseTimes(612345678.4, Double.NaN)
+                .dateTime(LocalDateTime.of(2026, 10, 17, 9, 5, 3, 42))
+                .consecutiveRounds(4)
+                .FforTrue(false)
+                .placement(PlacementOutcome.SHRUNK, 7, 0.85)
+                .sessionSeed(-42)
+                .trialSeed(123456789012345L)
+                .timings(new TrialRecord.Timing(150, 9, 1000000000L, 1150000000L, 150000000L, 9), null)
+                .renderTimes(2500000, 1234)
+                .build();
+    }
+
+    @Test
+    public void testEncodedLine() {
+        String expected = SUBJECT_ID + ",21,FEMALE,12,9,21,YES,NO,no,2,Inverse Areas,"
+                + "1.333333,0.571429,1.250000,Blue,Yellow,0.612345678,2026-10-17T09:05:03.000000042,"
+                + "4,3,No,J,Shrunk,7,0.850000,-42,123456789012345,"
+                + "150,9,1000000000,1150000000,150.000000,9,"
+                + "-,-,-,-,-,-,"
+                + "-,2.500000,0.001234\n";
+        TrialEncoder encoder = new TrialEncoder();
+        int length = encoder.encode(trial());
+        assertEquals(expected, encoder.toString());
+        assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, length);
+        assertEquals(expected, DataWriter.generateTrialText(trial()));
+    }
+}
@@ -0,0 +1,118 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Test;
+
+import controller.TrialJournal;
+import controller.TrialRecord;
+import model.ControlType;
+import model.Player;
+
+public class TestTrialJournal {
+
+    private static final int NUM_RECORDS = 10;
+
+    /** Size of the header of a journal, in bytes. */
+    private static final int HEADER_SIZE = 16;
+
+    private static TrialRecord trial(int i) {
+        return new TrialRecord.Builder()
+                .subject("1001", 21, Player.Gender.FEMALE)
+                .numDots(10 + i, 15)
+                .areas(1000.5, 1200.25)
+                .block(1, 2)
+                .controlType(ControlType.EQUAL_AREAS)
+                .colors("Blue", "Yellow")
+                .responseTimes(500000000 + i, 400000000 + i)
+                .dateTime(LocalDateTime.of(2026, 10, 17, 9, 30, i))
+                .consecutiveRounds(i)
+                .trialSeed(i)
+                .build();
+    }
+
+    /**
+     * Write NUM_RECORDS records and close the journal, which leaves the rest of
+     * the last mapping zeroed. The journal cannot be truncated while this JVM
+     * still has it mapped on every system, so it is copied, and the copy is
+     * recovered to its good records.
+     * @return the recovered copy.
+     */
+    private static Path writeJournalCopy() throws IOException {
+        Path folder = Files.createTempDirectory("journal");
+        Path file = folder.resolve("journal_1001.bin");
+        TrialJournal journal = new TrialJournal(file);
+        for (int i = 0; i < NUM_RECORDS; i++) {
+            journal.append(trial(i));
+        }
+        journal.close();
+        assertEquals(NUM_RECORDS, TrialJournal.read(file).size());
+        Path copy = Files.copy(file, folder.resolve("copy_1001.bin"));
+        assertEquals(NUM_RECORDS, TrialJournal.recover(copy));
+        return copy;
+    }
+
+    /**
+     * @return size in bytes of each record of a recovered journal of NUM_RECORDS records.
+     */
+    private static long recordSize(Path journal) throws IOException {
+        return (Files.size(journal) - HEADER_SIZE) / NUM_RECORDS;
+    }
+
+    @Test
+    public void testCorruptLastRecordIsDropped() throws IOException {
+        Path copy = writeJournalCopy();
+        long recordSize = recordSize(copy);
+        try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = channel.size() - recordSize / 2;
+            ByteBuffer oneByte = ByteBuffer.allocate(1);
+            channel.read(oneByte, position);
+            oneByte.put(0, (byte) ~oneByte.get(0)).rewind();
+            channel.write(oneByte, position);
+        }
+        assertEquals(NUM_RECORDS - 1, TrialJournal.read(copy).size());
+        assertEquals(NUM_RECORDS - 1, TrialJournal.recover(copy));
+        assertEquals(NUM_RECORDS - 1, TrialJournal.read(copy).size());
+    }
+
+    @Test
+    public void testTornLastRecordIsDropped() throws IOException {
+        Path copy = writeJournalCopy();
+        long recordSize = recordSize(copy);
+        try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - recordSize / 3);
+        }
+        List<TrialRecord> records = TrialJournal.read(copy);
+        assertEquals(NUM_RECORDS - 1, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(trial(i).getDateTime(), records.get(i).getDateTime());
+            assertEquals(10 + i, records.get(i).getNumDotsOne());
+        }
+        assertEquals(NUM_RECORDS - 1, TrialJournal.recover(copy));
+        TrialJournal journal = new TrialJournal(copy);
+        journal.append(trial(NUM_RECORDS));
+        journal.close();
+        assertEquals(NUM_RECORDS, TrialJournal.read(copy).size());
+    }
+
+    @Test
+    public void testLongStringsAreNotJournaled() {
+        assertTrue(TrialJournal.canHold(trial(0)));
+        assertFalse(TrialJournal.canHoldSubjectId("subject-0123456789-0123456789-0123456789"));
+        assertFalse(TrialJournal.canHold(new TrialRecord.Builder()
+                .subject("1001", 21, Player.Gender.FEMALE)
+                .colors("Blue", "Very Dark Greenish Blue")
+                .build()));
+    }
+}
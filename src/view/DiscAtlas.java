@@ -0,0 +1,156 @@
+package view;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+
+/**
+ * Antialiased discs of one color, rasterized once into a single image so
+ * that painting a dot is an image blit instead of an oval fill.
+ *
+ * There is a disc for every multiple of STEP up to the largest diameter.
+ * A dot is painted with the disc nearest to its diameter, scaled by the
+ * small remaining factor so its area matches the dot's area. Dots larger
+ * than the atlas are filled as ovals.
+ *
+ * The atlas is rasterized at the output scale of the screen (output.scale).
+ * Must be created and used on the JavaFX application thread.
+ *
+ * Classes Related To:
+ *  -DotsGameController.java
+ *      -Keeps an atlas for every dot color and paints the dots with it.
+ *  -RenderedArea.java
+ *      -Measures the area of each disc for verify().
+ *
+ * @author Tony Jiang
+ *
+ */
+public class DiscAtlas {
+
+    /** Difference between the diameters of two consecutive discs, in pixels. */
+    static final double STEP = 0.5;
+
+    /** Transparent margin around each disc, in pixels. */
+    static final int PADDING = 1;
+
+    /** Width of the atlas, in pixels. */
+    static final int ATLAS_WIDTH = 512;
+
+    /** Color of the discs. */
+    private final Color color;
+
+    /** Output scale the atlas was rasterized at. */
+    private final double scale;
+
+    /** The rasterized discs. */
+    private final WritableImage image;
+
+    /** Position and size of the cell of each disc in the image, in image pixels. Index i holds diameter i * STEP. */
+    private final int[] cellX;
+    private final int[] cellY;
+    private final int[] cellSize;
+
+    /** Distance from the corner of each cell to the corner of its disc, in pixels of the canvas painted on. */
+    private final double[] discOffsetX;
+    private final double[] discOffsetY;
+
+    /**
+     * Constructor for DiscAtlas. Rasterizes every disc.
+     * @param color color of the discs.
+     * @param maxDiameter largest diameter to rasterize, in pixels.
+     * @param scale output scale of the screen to rasterize at.
+     */
+    public DiscAtlas(Color color, double maxDiameter, double scale) {
+        this.color = color;
+        this.scale = scale;
+        int count = (int) Math.ceil(maxDiameter / STEP) + 1;
+        this.cellX = new int[count];
+        this.cellY = new int[count];
+        this.cellSize = new int[count];
+        this.discOffsetX = new double[count];
+        this.discOffsetY = new double[count];
+
+        int[] logicalX = new int[count];
+        int[] logicalY = new int[count];
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+        for (int i = 1; i < count; i++) {
+            int size = (int) Math.ceil(i * STEP) + 2 * PADDING;
+            if (x + size > ATLAS_WIDTH) {
+                x = 0;
+                y += rowHeight;
+                rowHeight = 0;
+            }
+            logicalX[i] = x;
+            logicalY[i] = y;
+            this.cellX[i] = (int) Math.floor(x * this.scale);
+            this.cellY[i] = (int) Math.floor(y * this.scale);
+            this.cellSize[i] = (int) Math.floor(size * this.scale);
+            this.discOffsetX[i] = x + PADDING - this.cellX[i] / this.scale;
+            this.discOffsetY[i] = y + PADDING - this.cellY[i] / this.scale;
+            x += size;
+            rowHeight = Math.max(rowHeight, size);
+        }
+        int height = y + rowHeight;
+
+        Canvas canvas = new Canvas(ATLAS_WIDTH, Math.max(1, height));
+        GraphicsContext graphicsContext = canvas.getGraphicsContext2D();
+        graphicsContext.setFill(color);
+        for (int i = 1; i < count; i++) {
+            graphicsContext.fillOval(logicalX[i] + PADDING, logicalY[i] + PADDING, i * STEP, i * STEP);
+        }
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        parameters.setTransform(Transform.scale(this.scale, this.scale));
+        this.image = canvas.snapshot(parameters, null);
+    }
+
+    /**
+     * Paint a dot. Takes the same arguments as GraphicsContext.fillOval for a circle.
+     * @param graphicsContext where to paint.
+     * @param x left of the dot.
+     * @param y top of the dot.
+     * @param diameter diameter of the dot.
+     */
+    public void paint(GraphicsContext graphicsContext, double x, double y, double diameter) {
+        int i = (int) Math.round(diameter / STEP);
+        if (i < 1 || i >= this.cellSize.length) {
+            graphicsContext.setFill(this.color);
+            graphicsContext.fillOval(x, y, diameter, diameter);
+            return;
+        }
+        double factor = diameter / (i * STEP);
+        double size = this.cellSize[i] / this.scale * factor;
+        graphicsContext.drawImage(this.image, this.cellX[i], this.cellY[i], this.cellSize[i], this.cellSize[i],
+                x - this.discOffsetX[i] * factor, y - this.discOffsetY[i] * factor, size, size);
+    }
+
+    /**
+     * Compare the rendered area of the discs with the area of a circle of their diameter.
+     * @param minDiameter smallest diameter to check. Very small discs are mostly edge
+     *      and differ the most.
+     * @return the largest relative difference, positive if a disc is too large.
+     */
+    public double verify(double minDiameter) {
+        double worst = 0;
+        for (int i = Math.max(1, (int) Math.ceil(minDiameter / STEP)); i < this.cellSize.length; i++) {
+            double radius = i * STEP / 2;
+            double analytic = Math.PI * radius * radius;
+            double rendered = RenderedArea.ofAlpha(this.image.getPixelReader(),
+                    this.cellX[i], this.cellY[i], this.cellSize[i], this.cellSize[i]) / (this.scale * this.scale);
+            double error = (rendered - analytic) / analytic;
+            if (Math.abs(error) > Math.abs(worst)) {
+                worst = error;
+            }
+        }
+        return worst;
+    }
+
+    public Color getColor() {
+        return this.color;
+    }
+}
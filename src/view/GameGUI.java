@@ -3,11 +3,11 @@ package view;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
+import config.Config;
 import injector.AppInjector;
 import controller.CurrentState;
 import controller.DotsGameController;
 import javafx.scene.Scene;
-import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
@@ -87,8 +87,8 @@ public class GameGUI {
     /** Button to begin actual assessment. */
     private Button startAssessment;
     
-    /** Game Screen - The canvas. */
-    private Canvas dotsCanvas;
+    /** Game Screen - The dots, drawn before each trial and swapped in. */
+    private StimulusBuffer dots;
     /** Game Screen - The Question. */
     private Label question;
     
@@ -120,6 +120,7 @@ public class GameGUI {
      * @throws IOException 
      */
     public GameGUI(Stage stage) {
+        Config.setCanvasSize(SetUp.DOTS_CANVAS_WIDTH, SetUp.DOTS_CANVAS_HEIGHT);
         Injector injector = Guice.createInjector(new AppInjector()); 
         DGC = injector.getInstance(DotsGameController.class);
         DGC.setView(this);
@@ -180,6 +181,25 @@ public class GameGUI {
         this.DGC.setGameHandlers();
     }
     
+    /**
+     * Sets the screen a session resumed from a checkpoint continues on: the
+     * block complete screen if it was interrupted between blocks, otherwise
+     * the game screen, which goes on with the next trial of the block.
+     * @param betweenBlocks true if the session was interrupted between blocks.
+     * @param blockMode the block to continue with.
+     * @param colorOne name of the first color of the block.
+     * @param colorTwo name of the second color of the block.
+     */
+    public void setResumeScreen(boolean betweenBlocks, int blockMode, String colorOne, String colorTwo) {
+        SetUp.setUpKeyGuides(this);
+        if (betweenBlocks) {
+            this.setBlockCompleteScreen(blockMode, colorOne, colorTwo);
+        } else {
+            this.setGameScreen();
+            this.practice.setVisible(false);
+        }
+    }
+    
     /** 
      * Sets the ending screen informing the subject of their completion.
      * @param stage The user interface stage.
@@ -202,6 +222,10 @@ public class GameGUI {
         SetUp.showExitPopup(this);     
     }
     
+    public DotsGameController getDGC() {
+        return this.DGC;
+    }
+    
     public Scene getScene() {
         return this.scene;
     }
@@ -210,12 +234,12 @@ public class GameGUI {
         this.scene = s;
     }
     
-    public Canvas getDotsCanvas() {
-        return this.dotsCanvas;
+    public StimulusBuffer getDots() {
+        return this.dots;
     }
     
-    public void setDotsCanvas(Canvas c) {
-        this.dotsCanvas = c;
+    public void setDots(StimulusBuffer dots) {
+        this.dots = dots;
     }
     
 
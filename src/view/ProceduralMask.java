@@ -0,0 +1,179 @@
+package view;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Renders a new dot-noise mask for every trial.
+ *
+ * The noise (discs of the mask color on the canvas gray) is drawn into an
+ * int array on a background thread while the dots are shown, then copied
+ * into a WritableImage on the JavaFX thread. There are two arrays and two
+ * images: one is on screen while the other is being prepared, so nothing
+ * is allocated per trial and the image shown is never written to.
+ *
+ * If the next mask is not ready when it is needed, the last one is shown again.
+ *
+ * Classes Related To:
+ *  -DotsGameController.java
+ *      -Prepares a mask when a trial starts and shows it after the dots.
+ *  -SetUp.java
+ *      -Sets up the ImageView the mask is shown in.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class ProceduralMask {
+
+    /** Color behind the discs, the same gray as the dots canvas. */
+    static final int BACKGROUND = 0xFF707070;
+
+    /** Fraction of the mask the discs cover, counting overlaps. */
+    static final double COVERAGE = 1.5;
+
+    private final int width;
+    private final int height;
+    private final int minDiameter;
+    private final int maxDiameter;
+
+    /** Pixels of each buffer, ARGB. */
+    private final int[][] pixels;
+
+    /** The images the buffers are copied into. */
+    private final WritableImage[] images;
+
+    /** Thread rendering the masks. */
+    private final ExecutorService renderThread;
+
+    /** Index of the buffer on screen. JavaFX thread only. */
+    private int current;
+
+    /** Whether the other buffer holds a mask not shown yet. JavaFX thread only. */
+    private boolean ready;
+
+    /** Number of the last mask asked for. Older masks are dropped. JavaFX thread only. */
+    private long generation;
+
+    /**
+     * Constructor for ProceduralMask.
+     * @param width width of the mask in pixels.
+     * @param height height of the mask in pixels.
+     * @param minDiameter smallest disc diameter in pixels.
+     * @param maxDiameter largest disc diameter in pixels.
+     */
+    public ProceduralMask(int width, int height, int minDiameter, int maxDiameter) {
+        this.width = width;
+        this.height = height;
+        this.minDiameter = Math.max(1, minDiameter);
+        this.maxDiameter = Math.max(this.minDiameter, maxDiameter);
+        this.pixels = new int[][] {new int[width * height], new int[width * height]};
+        this.images = new WritableImage[] {new WritableImage(width, height), new WritableImage(width, height)};
+        this.renderThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Mask renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start rendering the next mask in the background. Call from the JavaFX thread.
+     * @param color color of the discs.
+     * @param seed seed of the noise.
+     */
+    public void prepare(Color color, long seed) {
+        int index = 1 - this.current;
+        long requested = ++this.generation;
+        this.ready = false;
+        int argb = toArgb(color);
+        this.renderThread.execute(() -> {
+            int[] buffer = this.pixels[index];
+            synchronized (buffer) {
+                this.render(buffer, argb, seed);
+            }
+            Platform.runLater(() -> this.publish(index, requested));
+        });
+    }
+
+    /**
+     * Copy a rendered buffer into its image, unless a newer mask has been asked for.
+     * @param index index of the buffer.
+     * @param requested generation the buffer was rendered for.
+     */
+    private void publish(int index, long requested) {
+        if (requested != this.generation) {
+            return;
+        }
+        int[] buffer = this.pixels[index];
+        synchronized (buffer) {
+            this.images[index].getPixelWriter().setPixels(0, 0, this.width, this.height,
+                    PixelFormat.getIntArgbPreInstance(), IntBuffer.wrap(buffer), this.width);
+        }
+        this.ready = true;
+    }
+
+    /**
+     * Swap in the mask prepared last. Call from the JavaFX thread.
+     * @return the image of the new mask, or null if it is not ready yet.
+     */
+    public Image takeNext() {
+        if (!this.ready) {
+            return null;
+        }
+        this.ready = false;
+        this.current = 1 - this.current;
+        return this.images[this.current];
+    }
+
+    /**
+     * Draw the noise into a buffer.
+     * @param buffer the buffer.
+     * @param argb color of the discs.
+     * @param seed seed of the noise.
+     */
+    void render(int[] buffer, int argb, long seed) {
+        Arrays.fill(buffer, BACKGROUND);
+        SplittableRandom random = new SplittableRandom(seed);
+        double averageRadius = (this.minDiameter + this.maxDiameter) / 4.0;
+        int numDiscs = (int) (COVERAGE * this.width * this.height / (Math.PI * averageRadius * averageRadius));
+        for (int i = 0; i < numDiscs; i++) {
+            int diameter = random.nextInt(this.minDiameter, this.maxDiameter + 1);
+            this.fillDisc(buffer, random.nextInt(this.width), random.nextInt(this.height), diameter / 2.0, argb);
+        }
+    }
+
+    /**
+     * Fill a disc, clipped to the buffer.
+     */
+    private void fillDisc(int[] buffer, int centerX, int centerY, double radius, int argb) {
+        int r = (int) Math.ceil(radius);
+        double radiusSquared = radius * radius;
+        int top = Math.max(0, centerY - r);
+        int bottom = Math.min(this.height - 1, centerY + r);
+        for (int y = top; y <= bottom; y++) {
+            int dy = y - centerY;
+            int halfWidth = (int) Math.sqrt(Math.max(0, radiusSquared - dy * dy));
+            int left = Math.max(0, centerX - halfWidth);
+            int right = Math.min(this.width - 1, centerX + halfWidth);
+            int row = y * this.width;
+            for (int x = left; x <= right; x++) {
+                buffer[row + x] = argb;
+            }
+        }
+    }
+
+    private static int toArgb(Color color) {
+        return 0xFF000000
+                | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8
+                | (int) Math.round(color.getBlue() * 255);
+    }
+}
@@ -0,0 +1,66 @@
+package view;
+
+import javafx.scene.image.PixelReader;
+import javafx.scene.paint.Color;
+
+/**
+ * Measures how many pixels of a color were actually rendered, counting
+ * antialiased edge pixels by how much of the color they hold.
+ *
+ * Classes Related To:
+ *  -DiscAtlas.java
+ *      -Checks the area of each pre-rendered disc.
+ *  -StimulusBuffer.java
+ *      -Checks the area of each color of the dots drawn for a trial.
+ *
+ * @author Tony Jiang
+ *
+ */
+final class RenderedArea {
+
+    private RenderedArea() {
+    }
+
+    /**
+     * Sum of the opacity of the pixels in a rectangle, for shapes drawn on a transparent background.
+     * @return the area in pixels.
+     */
+    static double ofAlpha(PixelReader reader, int x, int y, int width, int height) {
+        double area = 0;
+        for (int row = y; row < y + height; row++) {
+            for (int column = x; column < x + width; column++) {
+                area += (reader.getArgb(column, row) >>> 24) / 255.0;
+            }
+        }
+        return area;
+    }
+
+    /**
+     * Sum of how much of a color the pixels in a rectangle hold, for shapes
+     * of that color drawn on an opaque background. Each pixel is taken as a
+     * blend of the color and the background; pixels of other colors count
+     * only as far as they lean towards the color.
+     * @return the area in pixels.
+     */
+    static double ofColor(PixelReader reader, int x, int y, int width, int height,
+            Color color, Color background) {
+        double red = color.getRed() - background.getRed();
+        double green = color.getGreen() - background.getGreen();
+        double blue = color.getBlue() - background.getBlue();
+        double length = red * red + green * green + blue * blue;
+        if (length == 0) {
+            return 0;
+        }
+        double area = 0;
+        for (int row = y; row < y + height; row++) {
+            for (int column = x; column < x + width; column++) {
+                int argb = reader.getArgb(column, row);
+                double blend = (((argb >> 16) & 0xFF) / 255.0 - background.getRed()) * red
+                        + (((argb >> 8) & 0xFF) / 255.0 - background.getGreen()) * green
+                        + ((argb & 0xFF) / 255.0 - background.getBlue()) * blue;
+                area += Math.max(0, Math.min(1, blend / length));
+            }
+        }
+        return area;
+    }
+}
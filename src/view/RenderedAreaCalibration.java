@@ -0,0 +1,129 @@
+package view;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import model.RenderedAreaTable;
+
+/**
+ * Measures how much area dots actually cover when rendered on this display,
+ * for every RenderedAreaTable.STEP of diameter.
+ *
+ * Each diameter is drawn as an antialiased oval at several sub-pixel offsets,
+ * rasterized at the output scale of the screen (output.scale), and the
+ * opacity of its pixels summed. Measuring takes a few hundred milliseconds,
+ * so the table is cached in CACHE_FOLDER, one file per output scale, and
+ * only measured again for a new display configuration.
+ *
+ * Must only be used from the JavaFX application thread.
+ *
+ * Classes Related To:
+ *  -RenderedAreaTable.java (model)
+ *      -The table measured.
+ *  -DotsGameController.java
+ *      -Loads the table when rendered.area.control is on and passes it to the DotsPairGenerator.
+ *
+ * @author Tony Jiang
+ *
+ */
+public final class RenderedAreaCalibration {
+
+    /** Logger */
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Folder the measured tables are cached in. */
+    static final String CACHE_FOLDER = "cache";
+
+    /** Sub-pixel offsets each diameter is measured at, averaged. */
+    static final double[] OFFSETS = {0, 0.25, 0.5, 0.75};
+
+    /** Number of cells per row and column of the canvas measured at once. */
+    static final int CELLS_PER_SIDE = 16;
+
+    private RenderedAreaCalibration() {
+    }
+
+    /**
+     * Load the table of this display from the cache, or measure and cache it.
+     * @param maxDiameter largest diameter the table must cover, in pixels.
+     * @param scale output scale of the screen, the same horizontally and vertically.
+     * @return the table.
+     */
+    public static RenderedAreaTable load(double maxDiameter, double scale) {
+        Path file = Paths.get(CACHE_FOLDER, "rendered_areas_" + scale + "x" + scale + ".txt");
+        try {
+            RenderedAreaTable table = RenderedAreaTable.load(file);
+            if (table != null && table.getMaxDiameter() >= maxDiameter) {
+                return table;
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read " + file + ", measuring again: " + e.getMessage());
+        }
+        long start = System.nanoTime();
+        RenderedAreaTable table = measure(maxDiameter, scale, scale);
+        logger.log(Level.INFO, "Measured rendered areas in " + (System.nanoTime() - start) / 1000000.0 + " ms");
+        try {
+            table.save(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return table;
+    }
+
+    /**
+     * Measure the rendered area of every diameter up to a maximum.
+     * @param maxDiameter largest diameter, in pixels.
+     * @param scaleX horizontal output scale of the display.
+     * @param scaleY vertical output scale of the display.
+     * @return the table.
+     */
+    static RenderedAreaTable measure(double maxDiameter, double scaleX, double scaleY) {
+        int count = (int) Math.ceil(maxDiameter / RenderedAreaTable.STEP) + 1;
+        int samples = count * OFFSETS.length;
+        int cell = (int) Math.ceil(maxDiameter) + 3;
+        int side = CELLS_PER_SIDE * cell;
+        Canvas canvas = new Canvas(side, side);
+        GraphicsContext graphicsContext = canvas.getGraphicsContext2D();
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        parameters.setTransform(Transform.scale(scaleX, scaleY));
+        WritableImage image = new WritableImage((int) Math.ceil(side * scaleX), (int) Math.ceil(side * scaleY));
+
+        double[] areas = new double[count];
+        int cellsPerBatch = CELLS_PER_SIDE * CELLS_PER_SIDE;
+        for (int first = 0; first < samples; first += cellsPerBatch) {
+            int last = Math.min(samples, first + cellsPerBatch);
+            graphicsContext.clearRect(0, 0, side, side);
+            graphicsContext.setFill(Color.WHITE);
+            for (int sample = first; sample < last; sample++) {
+                int position = sample - first;
+                double diameter = sample / OFFSETS.length * RenderedAreaTable.STEP;
+                double offset = OFFSETS[sample % OFFSETS.length];
+                graphicsContext.fillOval((position % CELLS_PER_SIDE) * cell + 1 + offset,
+                        (position / CELLS_PER_SIDE) * cell + 1 + offset, diameter, diameter);
+            }
+            canvas.snapshot(parameters, image);
+            PixelReader reader = image.getPixelReader();
+            for (int sample = first; sample < last; sample++) {
+                int position = sample - first;
+                int x = (int) Math.floor((position % CELLS_PER_SIDE) * cell * scaleX);
+                int y = (int) Math.floor((position / CELLS_PER_SIDE) * cell * scaleY);
+                int width = (int) Math.floor(cell * scaleX);
+                int height = (int) Math.floor(cell * scaleY);
+                areas[sample / OFFSETS.length] += RenderedArea.ofAlpha(reader, x, y, width, height)
+                        / (scaleX * scaleY) / OFFSETS.length;
+            }
+        }
+        return new RenderedAreaTable(areas);
+    }
+}
@@ -1,11 +1,12 @@
 package view;
+import java.util.HashMap;
+
 import controller.CurrentState;
 import util.Strings;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Cursor;
-import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
@@ -52,6 +53,12 @@ public final class SetUp {
     static final int DOTS_CANVAS_Y = (int) (SCREEN_HEIGHT * .15);
     public static final int DOTS_CANVAS_WIDTH = (int) (SCREEN_WIDTH * .7);
     public static final int DOTS_CANVAS_HEIGHT = (int) (SCREEN_HEIGHT * .7);
+    
+    /** Color behind the dots, the same as the background of the game screen. */
+    static final Color DOTS_BACKGROUND = Color.web("#707070");
+    
+    /** Mask images already decoded, by color. */
+    private static final HashMap<String, Image> MASK_IMAGES = new HashMap<String, Image>();
    
   
     /** Disable constructing of an object. */
@@ -125,8 +132,7 @@ public final class SetUp {
         instructionsText.setFont(new Font("Century Gothic", 55));
         instructionsText.setWrappingWidth(SCREEN_WIDTH * .8);
         
-        view.setLeftKeyGuide(new Label());
-        view.setRightKeyGuide(new Label());
+        setUpKeyGuides(view);
         view.setNext(new Button(Strings.NEXT_EN));
         view.getNext().setFont(new Font("Tahoma", 20));
         view.getNext().setPrefHeight(SCREEN_HEIGHT * .06);
@@ -135,6 +141,15 @@ public final class SetUp {
         view.getNext().setLayoutY(SCREEN_HEIGHT * .6);
         view.getLayout().getChildren().setAll(instructionsText, view.getNext(),
                 view.getLeftKeyGuide(), view.getRightKeyGuide());
+    }
+    
+    /**
+     * Sets up the labels telling which of F and J is "Yes".
+     * @param view GameGUI
+     */
+    public static void setUpKeyGuides(GameGUI view) {
+        view.setLeftKeyGuide(new Label());
+        view.setRightKeyGuide(new Label());
         configureKeyGuides(view);
     }
     
@@ -235,7 +250,7 @@ public final class SetUp {
         view.setPressSpaceText(new Label());
         
         view.getLayout().getChildren().setAll(view.getGetReadyBox(),
-                view.getDotsCanvas(), view.getPractice(), view.getQuestion(), view.getPressSpaceText(),
+                view.getDots().getView(), view.getPractice(), view.getQuestion(), view.getPressSpaceText(),
                 view.getMask());
         
         view.getGetReadyBox().setPrefHeight(SCREEN_HEIGHT * .1);
@@ -278,10 +293,13 @@ public final class SetUp {
      * @param view The graphical user interface.
      */
     static void setUpOptions(GameGUI view) {
-        view.setDotsCanvas(new Canvas(DOTS_CANVAS_WIDTH, DOTS_CANVAS_HEIGHT));
-
-        view.getDotsCanvas().setLayoutX(DOTS_CANVAS_X);
-        view.getDotsCanvas().setLayoutY(DOTS_CANVAS_Y);
+        if (view.getDots() == null) {
+            view.setDots(new StimulusBuffer(DOTS_CANVAS_WIDTH, DOTS_CANVAS_HEIGHT, DOTS_BACKGROUND,
+                    view.getDGC().getConfig().getOutputScale()));
+        }
+        view.getDots().hide();
+        view.getDots().getView().setLayoutX(DOTS_CANVAS_X);
+        view.getDots().getView().setLayoutY(DOTS_CANVAS_Y);
     }
     
     /**
@@ -324,7 +342,7 @@ public final class SetUp {
         quitLabel.setFont(new Font("Tahoma", 20));
         Button yesButton = new Button(Strings.YES_EN);
         yesButton.setOnAction(e -> {
-            System.exit(0);
+            view.getDGC().exitGame();
         });
         Button noButton = new Button(Strings.NO_EN);
         noButton.setOnAction(e -> {
@@ -349,17 +367,35 @@ public final class SetUp {
     }
     
     /**
-     * Change the color of the mask.
+     * Change the color of the mask. Each mask image is decoded the first time
+     * it is used and kept for the rest of the session.
      * @param view
      * @param color Color to be changed to.
      */
     public static void changeMaskColor(GameGUI view, String color) {
-        view.setMask(new ImageView());
-        view.getMask().setImage(new Image("/res/images/mask_" + color.toLowerCase() + ".png"));
+        if (view.getMask() == null) {
+            view.setMask(new ImageView());
+        }
+        view.getMask().setImage(getMaskImage(color));
         view.getMask().setFitWidth(DOTS_CANVAS_WIDTH);
         view.getMask().setFitHeight(DOTS_CANVAS_HEIGHT);
         view.getMask().setLayoutX(DOTS_CANVAS_X);
         view.getMask().setLayoutY(DOTS_CANVAS_Y);
         view.getMask().setVisible(false);
     }
+    
+    /**
+     * The mask image of a color, decoded on first use.
+     * @param color Color of the mask.
+     * @return the image.
+     */
+    static Image getMaskImage(String color) {
+        String key = color.toLowerCase();
+        Image image = MASK_IMAGES.get(key);
+        if (image == null) {
+            image = new Image("/res/images/mask_" + key + ".png");
+            MASK_IMAGES.put(key, image);
+        }
+        return image;
+    }
 }
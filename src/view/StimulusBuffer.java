@@ -0,0 +1,166 @@
+package view;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+
+/**
+ * Double buffer for the dots.
+ *
+ * The dots of the next trial are drawn on a canvas that is not on screen,
+ * then rasterized into the back one of two images while the subject is
+ * between trials. Showing the dots is then only a swap: the ImageView on
+ * screen is given the back image and made visible. The cost of showing the
+ * dots no longer depends on how many there are.
+ *
+ * Images are rasterized at the output scale of the screen (output.scale)
+ * so the dots are as sharp as when they were drawn on a canvas on screen.
+ *
+ * Must only be used from the JavaFX application thread.
+ *
+ * Classes Related To:
+ *  -DotsGameController.java
+ *      -Draws the next trial's dots and shows them when the trial starts.
+ *  -SetUp.java
+ *      -Places the ImageView on the game screen.
+ *
+ * @author Tony Jiang
+ *
+ */
+public class StimulusBuffer {
+
+    /** Canvas the dots are drawn on. Never on screen. */
+    private final Canvas drawing;
+
+    /** The two images, one on screen and one being prepared. */
+    private final WritableImage[] images;
+
+    /** Shows the image on screen. */
+    private final ImageView view;
+
+    /** Color behind the dots. */
+    private final Color background;
+
+    /** Output scale the images are rasterized at. */
+    private final double scale;
+
+    /** Rasterizes the canvas into the images. */
+    private final SnapshotParameters snapshotParameters;
+
+    /** Index of the image on screen. */
+    private int front;
+
+    /** Whether the back image holds dots not shown yet. */
+    private boolean ready;
+
+    /** Nanoseconds the last rasterization took. */
+    private long lastRenderTime;
+
+    /** Nanoseconds the last swap took. */
+    private long lastSwapTime;
+
+    /**
+     * Constructor for StimulusBuffer.
+     * @param width width of the dots area.
+     * @param height height of the dots area.
+     * @param background color behind the dots.
+     * @param scale output scale of the screen to rasterize at.
+     */
+    public StimulusBuffer(int width, int height, Color background, double scale) {
+        this.background = background;
+        this.scale = scale;
+        int pixelWidth = (int) Math.ceil(width * scale);
+        int pixelHeight = (int) Math.ceil(height * scale);
+        this.drawing = new Canvas(width, height);
+        this.images = new WritableImage[] {
+            new WritableImage(pixelWidth, pixelHeight), new WritableImage(pixelWidth, pixelHeight)
+        };
+        this.snapshotParameters = new SnapshotParameters();
+        this.snapshotParameters.setFill(background);
+        this.snapshotParameters.setTransform(Transform.scale(scale, scale));
+        this.view = new ImageView();
+        this.view.setFitWidth(width);
+        this.view.setFitHeight(height);
+        this.view.setVisible(false);
+    }
+
+    /**
+     * Start drawing the next dots. Clears the canvas.
+     * @return the graphics context to draw the dots with.
+     */
+    public GraphicsContext beginDrawing() {
+        GraphicsContext graphicsContext = this.drawing.getGraphicsContext2D();
+        graphicsContext.clearRect(0, 0, this.drawing.getWidth(), this.drawing.getHeight());
+        return graphicsContext;
+    }
+
+    /**
+     * Rasterize what was drawn since beginDrawing() into the back image.
+     */
+    public void finishDrawing() {
+        long start = System.nanoTime();
+        this.drawing.snapshot(this.snapshotParameters, this.images[1 - this.front]);
+        this.lastRenderTime = System.nanoTime() - start;
+        this.ready = true;
+    }
+
+    /**
+     * Measure the area of a color in the dots drawn last, counting antialiased
+     * edges by how much of the color they hold. Call after finishDrawing().
+     * @param color color of the dots to measure.
+     * @return the area in pixels.
+     */
+    public double measureArea(Color color) {
+        WritableImage back = this.images[1 - this.front];
+        return RenderedArea.ofColor(back.getPixelReader(), 0, 0, (int) back.getWidth(), (int) back.getHeight(),
+                color, this.background) / (this.scale * this.scale);
+    }
+
+    /**
+     * @return true if dots have been drawn that are not shown yet.
+     */
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    /**
+     * Show the dots drawn last by swapping the back image onto the screen.
+     */
+    public void show() {
+        long start = System.nanoTime();
+        this.front = 1 - this.front;
+        this.view.setImage(this.images[this.front]);
+        this.view.setVisible(true);
+        this.ready = false;
+        this.lastSwapTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Take the dots off the screen.
+     */
+    public void hide() {
+        this.view.setVisible(false);
+    }
+
+    public ImageView getView() {
+        return this.view;
+    }
+
+    /**
+     * @return nanoseconds the last call to finishDrawing() took.
+     */
+    public long getLastRenderTime() {
+        return this.lastRenderTime;
+    }
+
+    /**
+     * @return nanoseconds the last call to show() took.
+     */
+    public long getLastSwapTime() {
+        return this.lastSwapTime;
+    }
+}